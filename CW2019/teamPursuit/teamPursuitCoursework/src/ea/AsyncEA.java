@@ -0,0 +1,104 @@
+package ea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * An asynchronous steady state EA. Several workers, one per thread, share one population:
+ * each one over and over selects two parents, breeds a child, screens and evaluates it,
+ * and offers it to the population, where it replaces the worst if it is better. Nothing
+ * waits for the slowest evaluation, as it does when a generation or a batch is evaluated
+ * together, so the throughput grows with the number of cores while every insertion is
+ * still the replace the worst step of EA.replace.
+ *
+ * The workers draw on their own random numbers and share the population through a
+ * ConcurrentPopulation. The population is not shrunk or re-initialised as in EA.sawTooth,
+ * which counts one EA's iterations. The order the children arrive in depends on the
+ * timing of the threads, so unlike EA a run cannot be repeated from its seed.
+ */
+public class AsyncEA implements Runnable {
+
+	private final ConcurrentPopulation population = new ConcurrentPopulation();
+	private final EA workers[];
+	private final int maxIterations;
+	// iterations claimed by the workers so far, may run past the maximum by one per worker
+	private final AtomicInteger iterations = new AtomicInteger();
+
+
+	public AsyncEA(int workers, int maxIterations, long seed) {
+		this.workers = new EA[workers];
+		this.maxIterations = maxIterations;
+		SplittableRandom streams = new SplittableRandom(seed);
+		for (int k = 0; k < workers; k++) {
+			// each worker evaluates its own children, the workers already use every core
+			this.workers[k] = new EA(streams.split(), 1, population);
+		}
+	}
+
+
+	public static void main(String[] args) {
+		AsyncEA ea = new AsyncEA(Parameters.workers, Parameters.maxIterations, Parameters.seed);
+		ea.run();
+	}
+
+	public void run() {
+		ExecutorService threads = Executors.newFixedThreadPool(workers.length);
+		try {
+			long start = System.currentTimeMillis();
+			workers[0].initialise();
+			System.out.println("Workers: " + workers.length + "\t Population size: " + Parameters.popSize + "\t Iterations: " + maxIterations);
+			List<Future<Void>> running = new ArrayList<Future<Void>>();
+			for (EA worker : workers) {
+				running.add(threads.submit(work(worker)));
+			}
+			// reports progress while waiting for the workers to use up the iterations
+			for (Future<Void> future : running) {
+				while (true) {
+					try {
+						future.get(Parameters.progressIntervalMillis, TimeUnit.MILLISECONDS);
+						break;
+					} catch (TimeoutException e) {
+						printStats(start);
+					}
+				}
+			}
+			printStats(start);
+			population.getBest().print();
+			System.out.println("Fitness cache " + EA.cache);
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	Individual getBest() {
+		return population.getBest();
+	}
+
+	private Callable<Void> work(final EA worker) {
+		return new Callable<Void>() {
+			public Void call() {
+				while (iterations.getAndIncrement() < maxIterations) {
+					worker.iterate();
+				}
+				return null;
+			}
+		};
+	}
+
+	private void printStats(long start) {
+		Individual best = population.getBest();
+		Individual worst = population.getWorst();
+		System.out.println(Math.min(iterations.get(), maxIterations) + "\t B:" + best.getFitness() + "\t W:" + worst.getFitness()
+				+ "\t Time Elipsed: " + (System.currentTimeMillis() - start) / 1000 + "s");
+	}
+}
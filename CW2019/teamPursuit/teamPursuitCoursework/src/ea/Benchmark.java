@@ -0,0 +1,210 @@
+package ea;
+
+import java.lang.management.ManagementFactory;
+
+import teamPursuit.MensTeamPursuit;
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+import teamPursuit.WomensTeamPursuit;
+
+/***
+ * Throughput benchmarks for the simulator and the EA, run the way JMH runs them: every
+ * benchmark is warmed up for a few iterations, then timed over several more, and the
+ * mean and spread of each measurement iteration are reported. For each benchmark it
+ * prints operations per second, evaluations (races actually simulated) per second, and
+ * the bytes allocated per operation and per second, as measured by the JVM's per-thread
+ * allocation counter. Run it before and after a change, on an otherwise idle machine.
+ *
+ * Usage: Benchmark [seconds per iteration] [warmup iterations] [measurement iterations] [name filter]
+ *
+ * The men's race has 31 segments, so the women's strategies are stretched over it, each
+ * men's segment taking the decisions of the women's segment at the same point in the race.
+ */
+public class Benchmark {
+
+	// the best strategy found so far, 207.024 s (see "Bests Perormances.txt")
+	private static final int [] BEST_WOMENS_PACING_STRATEGY = {661, 443, 307, 348, 541, 381, 244, 512, 522, 566, 555, 320, 607, 427, 395, 573, 276, 602, 589, 279, 612, 466, 225};
+	private static final boolean [] BEST_WOMENS_TRANSITION_STRATEGY = {true, true, true, false, false, true, false, true, false, true, false, false, true, true, true, false, false, true, true, false, false, false};
+
+	// results are summed in here so the simulations cannot be optimised away
+	static double sink;
+
+	private static abstract class Case {
+		final String name;
+
+		Case(String name) {
+			this.name = name;
+		}
+
+		void setUp() throws Exception {
+		}
+
+		// runs one operation and returns the number of races it simulated
+		abstract long run() throws Exception;
+	}
+
+	private static class Simulate extends Case {
+		private final TeamPursuit event;
+		private final boolean [] transitionStrategy;
+		private final int [] pacingStrategy;
+
+		Simulate(String name, TeamPursuit event, boolean [] transitionStrategy, int [] pacingStrategy) {
+			super(name);
+			this.event = event;
+			this.transitionStrategy = transitionStrategy;
+			this.pacingStrategy = pacingStrategy;
+		}
+
+		long run() throws Exception {
+			sink += event.simulate(transitionStrategy, pacingStrategy).getFinishTime();
+			return 1;
+		}
+	}
+
+	// the garbage free path, alternating between two strategies so every call simulates
+	private static class SimulateInto extends Case {
+		private final TeamPursuit event;
+		private final boolean [] transitionStrategy;
+		private final int [][] pacingStrategies = new int[2][];
+		private SimulationResult reusable = null;
+		private int next = 0;
+
+		SimulateInto(String name, TeamPursuit event, boolean [] transitionStrategy, int [] pacingStrategy) {
+			super(name);
+			this.event = event;
+			this.transitionStrategy = transitionStrategy;
+			this.pacingStrategies[0] = pacingStrategy;
+			this.pacingStrategies[1] = pacingStrategy.clone();
+			this.pacingStrategies[1][0]++;
+		}
+
+		long run() throws Exception {
+			reusable = event.simulateInto(transitionStrategy, pacingStrategies[next], reusable);
+			next = 1 - next;
+			sink += reusable.getFinishTime();
+			return 1;
+		}
+	}
+
+	private static class Iteration extends Case {
+		private EA ea;
+
+		Iteration(String name) {
+			super(name);
+		}
+
+		// on one thread, so that everything the iteration allocates is counted
+		void setUp() {
+			Parameters.parallelism = 1;
+			ea = new EA();
+			ea.initialise();
+		}
+
+		// the statistics count every race simulated exactly once, whether alone or in a batch
+		long run() {
+			long evaluations = EA.statistics.getEvaluations();
+			ea.iterate();
+			return EA.statistics.getEvaluations() - evaluations;
+		}
+	}
+
+	private final double seconds;
+	private final int warmupIterations, measurementIterations;
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+
+	public Benchmark(double seconds, int warmupIterations, int measurementIterations) {
+		this.seconds = seconds;
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+		int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int measurementIterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		String filter = args.length > 3 ? args[3] : "";
+
+		boolean [] mensDefaultTransitions = stretch(Parameters.DEFAULT_WOMENS_TRANSITION_STRATEGY, 30);
+		int [] mensDefaultPacing = stretch(Parameters.DEFAULT_WOMENS_PACING_STRATEGY, 31);
+		boolean [] mensBestTransitions = stretch(BEST_WOMENS_TRANSITION_STRATEGY, 30);
+		int [] mensBestPacing = stretch(BEST_WOMENS_PACING_STRATEGY, 31);
+
+		Case [] cases = {
+			new Simulate("womens.simulate.default", new WomensTeamPursuit(), Parameters.DEFAULT_WOMENS_TRANSITION_STRATEGY, Parameters.DEFAULT_WOMENS_PACING_STRATEGY),
+			new Simulate("womens.simulate.best", new WomensTeamPursuit(), BEST_WOMENS_TRANSITION_STRATEGY, BEST_WOMENS_PACING_STRATEGY),
+			new Simulate("mens.simulate.default", new MensTeamPursuit(), mensDefaultTransitions, mensDefaultPacing),
+			new Simulate("mens.simulate.best", new MensTeamPursuit(), mensBestTransitions, mensBestPacing),
+			new SimulateInto("womens.simulateInto.best", new WomensTeamPursuit(), BEST_WOMENS_TRANSITION_STRATEGY, BEST_WOMENS_PACING_STRATEGY),
+			new Iteration("ea.iteration")};
+
+		Benchmark benchmark = new Benchmark(seconds, warmupIterations, measurementIterations);
+		System.out.println(String.format("%-26s %12s %12s %12s %12s %12s", "Benchmark", "ops/s", "+-", "evals/s", "B/op", "MB/s"));
+		for (Case c : cases) {
+			if (c.name.contains(filter)) {
+				System.out.println(benchmark.measure(c));
+			}
+		}
+		if (sink == 42.0)
+			System.out.println();
+	}
+
+	private String measure(Case c) throws Exception {
+		c.setUp();
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(c);
+		}
+		double opsPerSecond[] = new double[measurementIterations];
+		double evaluationsPerSecond = 0, bytesPerOperation = 0, bytesPerSecond = 0;
+		for (int i = 0; i < measurementIterations; i++) {
+			double [] measured = iteration(c);
+			opsPerSecond[i] = measured[0];
+			evaluationsPerSecond += measured[1] / measurementIterations;
+			bytesPerOperation += measured[2] / measurementIterations;
+			bytesPerSecond += measured[3] / measurementIterations;
+		}
+		double mean = 0, variance = 0;
+		for (double o : opsPerSecond) {
+			mean += o / measurementIterations;
+		}
+		for (double o : opsPerSecond) {
+			variance += Math.pow(o - mean, 2) / Math.max(1, measurementIterations - 1);
+		}
+		return String.format("%-26s %12.1f %12.1f %12.1f %12.0f %12.2f", c.name, mean, Math.sqrt(variance), evaluationsPerSecond, bytesPerOperation, bytesPerSecond / 1e6);
+	}
+
+	// runs operations for the given time, returning ops/s, evaluations/s, bytes/op and bytes/s
+	private double [] iteration(Case c) throws Exception {
+		long thread = Thread.currentThread().getId();
+		long operations = 0, evaluations = 0;
+		long bytes = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		long end = start + (long) (seconds * 1e9);
+		long now;
+		do {
+			evaluations += c.run();
+			operations++;
+			now = System.nanoTime();
+		} while (now < end);
+		bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+		double elapsed = (now - start) / 1e9;
+		return new double[] {operations / elapsed, evaluations / elapsed, (double) bytes / operations, bytes / elapsed};
+	}
+
+	private static boolean [] stretch(boolean [] strategy, int length) {
+		boolean [] stretched = new boolean[length];
+		for (int i = 0; i < length; i++) {
+			stretched[i] = strategy[i * strategy.length / length];
+		}
+		return stretched;
+	}
+
+	private static int [] stretch(int [] strategy, int length) {
+		int [] stretched = new int[length];
+		for (int i = 0; i < length; i++) {
+			stretched[i] = strategy[i * strategy.length / length];
+		}
+		return stretched;
+	}
+}
@@ -0,0 +1,352 @@
+package ea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import teamPursuit.TeamPursuit;
+import teamPursuit.WomensTeamPursuit;
+
+/***
+ * Searches the pacing strategy with CMA-ES, the covariance matrix adaptation evolution
+ * strategy, treating the 23 powers as continuous. Every generation samples a population
+ * from a multivariate normal distribution around the current mean, evaluates it in
+ * parallel, and moves the mean towards the best half, adapting the step size and the
+ * shape of the distribution as it goes, so correlated changes to several segments are
+ * found as readily as single ones.
+ *
+ * Samples are rounded and clamped into the range of powers the simulator accepts before
+ * they are simulated; a sample outside it is ranked as if it were slightly worse than
+ * its clamped copy, so the distribution is pulled back inside. The transitions are
+ * drawn alongside the powers, each with its own probability that moves towards how often
+ * the best half of every generation uses it. Every few generations each transition of
+ * the best strategy so far is also flipped in turn, and if a flip is an improvement the
+ * probabilities are set to the new best.
+ *
+ * Usage: CMAES [evaluations] [generations between transition searches]
+ */
+public class CMAES implements Runnable {
+
+	// the spread of the first samples, in watts
+	private static final double INITIAL_SIGMA = 30;
+	// added to the fitness for every squared watt a sample lies outside the range
+	private static final double BOUNDARY_PENALTY = 1e-4;
+	// how far each generation moves the transition probabilities towards the best half, and
+	// how close they may come to 0 or 1, so every transition can still be tried either way
+	private static final double TRANSITION_LEARNING_RATE = 0.2;
+	private static final double MIN_TRANSITION_PROBABILITY = 0.02;
+
+	private final TeamPursuit teamPursuit = new WomensTeamPursuit();
+	private final SplittableRandom rnd;
+	private final Evaluator evaluator;
+	private final FitnessCache cache;
+	private final int maxEvaluations, transitionInterval;
+	// the probability of each transition in a sample, learnt from the best half
+	private final double transitionProbability[];
+
+	// the constants of the strategy, set from the dimension as Hansen recommends
+	private final int n, lambda, mu;
+	private final double weights[];
+	private final double mueff, cc, cs, c1, cmu, damps, chiN;
+
+	private final double mean[];
+	private double sigma = INITIAL_SIGMA;
+	private final double pc[], ps[];
+	private final double C[][], B[][], D[];
+	private int evaluations = 0, generation = 0, eigenEvaluations = 0;
+	private Individual best = null;
+
+
+	public CMAES(Configuration configuration, int maxEvaluations, int transitionInterval) {
+		this.rnd = new SplittableRandom(configuration.seed);
+		this.cache = configuration.cache;
+		this.evaluator = new Evaluator(configuration.parallelism, cache);
+		this.maxEvaluations = maxEvaluations;
+		this.transitionInterval = transitionInterval;
+		teamPursuit.setRecordVelocityProfile(false);
+
+		n = Parameters.DEFAULT_WOMENS_PACING_STRATEGY.length;
+		lambda = 4 + (int) (3 * Math.log(n));
+		mu = lambda / 2;
+		weights = new double[mu];
+		double sum = 0, squares = 0;
+		for (int i = 0; i < mu; i++) {
+			weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+			sum += weights[i];
+		}
+		for (int i = 0; i < mu; i++) {
+			weights[i] /= sum;
+			squares += weights[i] * weights[i];
+		}
+		mueff = 1 / squares;
+		cc = (4 + mueff / n) / (n + 4 + 2 * mueff / n);
+		cs = (mueff + 2) / (n + mueff + 5);
+		c1 = 2 / ((n + 1.3) * (n + 1.3) + mueff);
+		cmu = Math.min(1 - c1, 2 * (mueff - 2 + 1 / mueff) / ((n + 2) * (n + 2) + mueff));
+		damps = 1 + 2 * Math.max(0, Math.sqrt((mueff - 1) / (n + 1)) - 1) + cs;
+		chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21 * n * n));
+
+		transitionProbability = new double[n - 1];
+		Arrays.fill(transitionProbability, 0.5);
+		mean = new double[n];
+		for (int i = 0; i < n; i++) {
+			mean[i] = Parameters.DEFAULT_WOMENS_PACING_STRATEGY[i];
+		}
+		pc = new double[n];
+		ps = new double[n];
+		C = new double[n][n];
+		B = new double[n][n];
+		D = new double[n];
+		for (int i = 0; i < n; i++) {
+			C[i][i] = 1;
+			B[i][i] = 1;
+			D[i] = 1;
+		}
+	}
+
+
+	public static void main(String[] args) {
+		int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int transitionInterval = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		CMAES cmaes = new CMAES(Configuration.fromParameters(), evaluations, transitionInterval);
+		cmaes.run();
+	}
+
+	public void run() {
+		long start = System.currentTimeMillis();
+		System.out.println("CMA-ES\t dimension: " + n + "\t lambda: " + lambda + "\t mu: " + mu + "\t evaluations: " + maxEvaluations);
+		while (evaluations < maxEvaluations && sigma > 0.5) {
+			generation();
+			if (transitionInterval > 0 && generation % transitionInterval == 0) {
+				searchTransitions();
+			}
+			System.out.println(generation + "\t evaluations: " + evaluations + "\t B:" + best.getFitness() + "\t sigma: " + sigma
+					+ "\t Time Elipsed: " + (System.currentTimeMillis() - start) / 1000 + "s");
+		}
+		best.print();
+		System.out.println("Evaluations: " + evaluations);
+		System.out.println("Fitness cache " + cache);
+	}
+
+	Individual getBest() {
+		return best;
+	}
+
+	// samples, evaluates and ranks one population, then updates the distribution
+	private void generation() {
+		if (evaluations - eigenEvaluations > lambda / (c1 + cmu) / n / 10) {
+			decompose();
+		}
+		final double x[][] = new double[lambda][n];
+		List<Individual> sampled = new ArrayList<Individual>();
+		for (int k = 0; k < lambda; k++) {
+			double z[] = new double[n];
+			for (int i = 0; i < n; i++) {
+				z[i] = D[i] * rnd.nextGaussian();
+			}
+			Individual individual = new Individual();
+			for (int i = 0; i < n; i++) {
+				double y = 0;
+				for (int j = 0; j < n; j++) {
+					y += B[i][j] * z[j];
+				}
+				x[k][i] = mean[i] + sigma * y;
+				individual.pacingStrategy[i] = (int) Math.round(Math.max(TeamPursuit.MINIMUM_POWER, Math.min(TeamPursuit.MAXIMUM_POWER, x[k][i])));
+			}
+			for (int i = 0; i < n - 1; i++) {
+				individual.transitionStrategy[i] = rnd.nextDouble() < transitionProbability[i];
+			}
+			sampled.add(individual);
+		}
+		evaluator.evaluate(sampled, teamPursuit);
+		evaluations += lambda;
+
+		final double ranking[] = new double[lambda];
+		for (int k = 0; k < lambda; k++) {
+			Individual individual = sampled.get(k);
+			offer(individual);
+			ranking[k] = individual.getFitness();
+			for (int i = 0; i < n; i++) {
+				double outside = x[k][i] - Math.max(TeamPursuit.MINIMUM_POWER, Math.min(TeamPursuit.MAXIMUM_POWER, x[k][i]));
+				ranking[k] += BOUNDARY_PENALTY * outside * outside;
+			}
+		}
+		Integer order[] = new Integer[lambda];
+		for (int k = 0; k < lambda; k++) {
+			order[k] = k;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(ranking[a], ranking[b]);
+			}
+		});
+
+		double old[] = mean.clone();
+		for (int i = 0; i < n; i++) {
+			mean[i] = 0;
+			for (int k = 0; k < mu; k++) {
+				mean[i] += weights[k] * x[order[k]][i];
+			}
+		}
+		update(old, x, order);
+		for (int i = 0; i < n - 1; i++) {
+			double p = 0;
+			for (int k = 0; k < mu; k++) {
+				p += sampled.get(order[k]).transitionStrategy[i] ? weights[k] : 0;
+			}
+			p = (1 - TRANSITION_LEARNING_RATE) * transitionProbability[i] + TRANSITION_LEARNING_RATE * p;
+			transitionProbability[i] = Math.max(MIN_TRANSITION_PROBABILITY, Math.min(1 - MIN_TRANSITION_PROBABILITY, p));
+		}
+		generation++;
+	}
+
+	// the evolution paths, the covariance matrix and the step size
+	private void update(double [] old, double [][] x, Integer [] order) {
+		double step[] = new double[n];
+		for (int i = 0; i < n; i++) {
+			step[i] = (mean[i] - old[i]) / sigma;
+		}
+		// C^-1/2 times the step, as B D^-1 B' times it
+		double whitened[] = new double[n];
+		for (int j = 0; j < n; j++) {
+			double dot = 0;
+			for (int i = 0; i < n; i++) {
+				dot += B[i][j] * step[i];
+			}
+			whitened[j] = dot / D[j];
+		}
+		double norm = 0;
+		for (int i = 0; i < n; i++) {
+			double sum = 0;
+			for (int j = 0; j < n; j++) {
+				sum += B[i][j] * whitened[j];
+			}
+			ps[i] = (1 - cs) * ps[i] + Math.sqrt(cs * (2 - cs) * mueff) * sum;
+			norm += ps[i] * ps[i];
+		}
+		norm = Math.sqrt(norm);
+		boolean stalled = norm / Math.sqrt(1 - Math.pow(1 - cs, 2 * (generation + 1))) / chiN >= 1.4 + 2.0 / (n + 1);
+		double hsig = stalled ? 0 : 1;
+		for (int i = 0; i < n; i++) {
+			pc[i] = (1 - cc) * pc[i] + hsig * Math.sqrt(cc * (2 - cc) * mueff) * step[i];
+		}
+		double y[][] = new double[mu][n];
+		for (int k = 0; k < mu; k++) {
+			for (int i = 0; i < n; i++) {
+				y[k][i] = (x[order[k]][i] - old[i]) / sigma;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j <= i; j++) {
+				double rankMu = 0;
+				for (int k = 0; k < mu; k++) {
+					rankMu += weights[k] * y[k][i] * y[k][j];
+				}
+				C[i][j] = (1 - c1 - cmu) * C[i][j] + c1 * (pc[i] * pc[j] + (1 - hsig) * cc * (2 - cc) * C[i][j]) + cmu * rankMu;
+				C[j][i] = C[i][j];
+			}
+		}
+		sigma *= Math.exp((cs / damps) * (norm / chiN - 1));
+	}
+
+	// flips every transition of the best strategy in turn and keeps the best flip if it helps
+	private void searchTransitions() {
+		List<Individual> flips = new ArrayList<Individual>();
+		for (int i = 0; i < best.transitionStrategy.length; i++) {
+			Individual flip = best.copy();
+			flip.transitionStrategy[i] = !flip.transitionStrategy[i];
+			flip.invalidate();
+			flips.add(flip);
+		}
+		evaluator.evaluate(flips, teamPursuit);
+		evaluations += flips.size();
+		if (offer(flips)) {
+			for (int i = 0; i < n - 1; i++) {
+				transitionProbability[i] = best.transitionStrategy[i] ? 1 - MIN_TRANSITION_PROBABILITY : MIN_TRANSITION_PROBABILITY;
+			}
+		}
+	}
+
+	private boolean offer(List<Individual> individuals) {
+		boolean improved = false;
+		for (Individual individual : individuals) {
+			improved |= offer(individual);
+		}
+		return improved;
+	}
+
+	private boolean offer(Individual individual) {
+		if (best == null || individual.getFitness() < best.getFitness()) {
+			best = individual;
+			EA.statistics.offerBest(individual.getFitness());
+			return true;
+		}
+		return false;
+	}
+
+	// B and D from the eigenvalues and eigenvectors of C, with C = B D^2 B'
+	private void decompose() {
+		eigenEvaluations = evaluations;
+		double eigenvalues[] = new double[n];
+		jacobi(C, B, eigenvalues);
+		for (int i = 0; i < n; i++) {
+			D[i] = Math.sqrt(Math.max(eigenvalues[i], 1e-20));
+		}
+	}
+
+	// cyclic Jacobi rotations until the off diagonal is negligible; the columns of vectors
+	// are the eigenvectors of the symmetric matrix
+	private static void jacobi(double [][] matrix, double [][] vectors, double [] values) {
+		int n = values.length;
+		double a[][] = new double[n][];
+		for (int i = 0; i < n; i++) {
+			a[i] = matrix[i].clone();
+			Arrays.fill(vectors[i], 0);
+			vectors[i][i] = 1;
+		}
+		for (int sweep = 0; sweep < 50; sweep++) {
+			double off = 0;
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					off += a[p][q] * a[p][q];
+				}
+			}
+			if (off < 1e-22) {
+				break;
+			}
+			for (int p = 0; p < n; p++) {
+				for (int q = p + 1; q < n; q++) {
+					if (a[p][q] == 0) {
+						continue;
+					}
+					double theta = (a[q][q] - a[p][p]) / (2 * a[p][q]);
+					double t = Math.signum(theta) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					if (theta == 0) {
+						t = 1;
+					}
+					double c = 1 / Math.sqrt(t * t + 1), s = t * c;
+					for (int k = 0; k < n; k++) {
+						double akp = a[k][p], akq = a[k][q];
+						a[k][p] = c * akp - s * akq;
+						a[k][q] = s * akp + c * akq;
+					}
+					for (int k = 0; k < n; k++) {
+						double apk = a[p][k], aqk = a[q][k];
+						a[p][k] = c * apk - s * aqk;
+						a[q][k] = s * apk + c * aqk;
+					}
+					for (int k = 0; k < n; k++) {
+						double vkp = vectors[k][p], vkq = vectors[k][q];
+						vectors[k][p] = c * vkp - s * vkq;
+						vectors[k][q] = s * vkp + c * vkq;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			values[i] = a[i][i];
+		}
+	}
+}
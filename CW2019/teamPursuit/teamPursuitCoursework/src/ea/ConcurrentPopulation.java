@@ -0,0 +1,120 @@
+package ea;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A population several threads breed from and into at once. Looking up the best or the
+ * worst, roulette selection and reading a slot share a read lock, so readers never wait
+ * for each other; adding, replacing and removing take the write lock, but only for the
+ * O(log n) update of the heaps and the wheel. Children are evaluated outside the lock,
+ * so a thread inserting a child never waits for another thread's simulation.
+ *
+ * replaceWorstIfBetter compares the child with the worst and replaces it as one step, so
+ * concurrent replacements keep the steady state semantics: a child only ever replaces
+ * the individual that is worst at the moment it goes in, and only if it is better.
+ */
+final class ConcurrentPopulation extends Population {
+
+	private final StampedLock lock = new StampedLock();
+
+
+	int size() {
+		long stamp = lock.readLock();
+		try {
+			return super.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	Individual get(int slot) {
+		long stamp = lock.readLock();
+		try {
+			return super.get(slot);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	Individual getBest() {
+		long stamp = lock.readLock();
+		try {
+			return super.getBest();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	Individual getWorst() {
+		long stamp = lock.readLock();
+		try {
+			return super.getWorst();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	Individual select(SplittableRandom rnd) {
+		long stamp = lock.readLock();
+		try {
+			return super.select(rnd);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	// addAll adds through here too
+	void add(Individual individual) {
+		long stamp = lock.writeLock();
+		try {
+			super.add(individual);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void replaceWorst(Individual child) {
+		long stamp = lock.writeLock();
+		try {
+			super.replaceWorst(child);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	// the child is compared with the worst under a read lock first, most children are
+	// rejected and never need the write lock
+	boolean replaceWorstIfBetter(Individual child) {
+		long stamp = lock.readLock();
+		try {
+			if (child.getFitness() >= super.getWorst().getFitness()) {
+				return false;
+			}
+			long write = lock.tryConvertToWriteLock(stamp);
+			if (write == 0L) {
+				lock.unlockRead(stamp);
+				stamp = lock.writeLock();
+			} else {
+				stamp = write;
+			}
+			// the worst may have been replaced while waiting for the write lock
+			if (child.getFitness() >= super.getWorst().getFitness()) {
+				return false;
+			}
+			super.replaceWorst(child);
+			return true;
+		} finally {
+			lock.unlock(stamp);
+		}
+	}
+
+	Individual removeWorst() {
+		long stamp = lock.writeLock();
+		try {
+			return super.removeWorst();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+}
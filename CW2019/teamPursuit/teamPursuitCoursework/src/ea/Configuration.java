@@ -0,0 +1,186 @@
+package ea;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * The settings of one EA run. An EA reads its settings from here rather than from the
+ * static fields of Parameters, so runs with different settings can share a JVM. A run
+ * is normally set up with fromParameters and then changed, and the configuration must
+ * not be changed while the run is going.
+ *
+ * Each run has its own fitness cache too. The cache changes which children are simulated
+ * in full, so two runs sharing one would no longer repeat from their seeds.
+ */
+public class Configuration {
+
+	public enum Selection {
+		/** Probability proportional to fitness. */
+		ROULETTE,
+		/** The best of tournamentSize individuals picked at random. */
+		TOURNAMENT
+	}
+
+	public enum Crossover {
+		ONE_POINT,
+		TWO_POINT,
+		UNIFORM
+	}
+
+	public enum Mutation {
+		/** A scrambled stretch of the pacing strategy, then every power moved by up to 50. */
+		SCRAMBLE_CREEP,
+		/** Up to mutationRateMax transitions flipped and powers set at random. */
+		RANDOM_RESET
+	}
+
+	public long seed;
+
+	public int popSize;
+	public int tournamentSize;
+
+	public int mutationRateMax;
+	public double mutationProbability;
+	public double crossoverProbability;
+
+	public int maxIterations;
+	// 0 for maxIterations / 125
+	public int sawToothPeriod;
+
+	public Selection selection;
+	public Crossover crossover;
+	public Mutation mutation;
+
+	public boolean screenChildren;
+	public double screeningMargin;
+	public double screeningProportion;
+
+	public double localSearchProbability;
+	public int localSearchMoves;
+	public int localSearchStep;
+
+	public FitnessCache cache;
+
+	public ProgressReporter.Verbosity progressVerbosity;
+	public long progressIntervalMillis;
+	public int progressFlushEvery;
+	public int progressBufferSize;
+	public String progressCsv;
+
+	public int checkpointInterval;
+	public String checkpointFile;
+
+	public int parallelism;
+
+
+	// the settings in Parameters as they are now, sharing EA.cache
+	public static Configuration fromParameters() {
+		Configuration configuration = new Configuration();
+		configuration.seed = Parameters.seed;
+		configuration.popSize = Parameters.popSize;
+		configuration.tournamentSize = Parameters.tournamentSize;
+		configuration.mutationRateMax = Parameters.mutationRateMax;
+		configuration.mutationProbability = Parameters.mutationProbability;
+		configuration.crossoverProbability = Parameters.crossoverProbability;
+		configuration.maxIterations = Parameters.maxIterations;
+		configuration.sawToothPeriod = Parameters.sawToothPeriod;
+		configuration.selection = Parameters.selection;
+		configuration.crossover = Parameters.crossover;
+		configuration.mutation = Parameters.mutation;
+		configuration.screenChildren = Parameters.screenChildren;
+		configuration.screeningMargin = Parameters.screeningMargin;
+		configuration.screeningProportion = Parameters.screeningProportion;
+		configuration.localSearchProbability = Parameters.localSearchProbability;
+		configuration.localSearchMoves = Parameters.localSearchMoves;
+		configuration.localSearchStep = Parameters.localSearchStep;
+		configuration.cache = EA.cache;
+		configuration.progressVerbosity = Parameters.progressVerbosity;
+		configuration.progressIntervalMillis = Parameters.progressIntervalMillis;
+		configuration.progressFlushEvery = Parameters.progressFlushEvery;
+		configuration.progressBufferSize = Parameters.progressBufferSize;
+		configuration.progressCsv = Parameters.progressCsv;
+		configuration.checkpointInterval = Parameters.checkpointInterval;
+		configuration.checkpointFile = Parameters.checkpointFile;
+		configuration.parallelism = Parameters.parallelism;
+		return configuration;
+	}
+
+	public Configuration copy() {
+		Configuration configuration = new Configuration();
+		configuration.seed = seed;
+		configuration.popSize = popSize;
+		configuration.tournamentSize = tournamentSize;
+		configuration.mutationRateMax = mutationRateMax;
+		configuration.mutationProbability = mutationProbability;
+		configuration.crossoverProbability = crossoverProbability;
+		configuration.maxIterations = maxIterations;
+		configuration.sawToothPeriod = sawToothPeriod;
+		configuration.selection = selection;
+		configuration.crossover = crossover;
+		configuration.mutation = mutation;
+		configuration.screenChildren = screenChildren;
+		configuration.screeningMargin = screeningMargin;
+		configuration.screeningProportion = screeningProportion;
+		configuration.localSearchProbability = localSearchProbability;
+		configuration.localSearchMoves = localSearchMoves;
+		configuration.localSearchStep = localSearchStep;
+		configuration.cache = cache;
+		configuration.progressVerbosity = progressVerbosity;
+		configuration.progressIntervalMillis = progressIntervalMillis;
+		configuration.progressFlushEvery = progressFlushEvery;
+		configuration.progressBufferSize = progressBufferSize;
+		configuration.progressCsv = progressCsv;
+		configuration.checkpointInterval = checkpointInterval;
+		configuration.checkpointFile = checkpointFile;
+		configuration.parallelism = parallelism;
+		return configuration;
+	}
+
+	// the settings that shape the search, as a properties file
+	public void store(Writer out, String comments) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("popSize", Integer.toString(popSize));
+		properties.setProperty("tournamentSize", Integer.toString(tournamentSize));
+		properties.setProperty("mutationRateMax", Integer.toString(mutationRateMax));
+		properties.setProperty("mutationProbability", Double.toString(mutationProbability));
+		properties.setProperty("crossoverProbability", Double.toString(crossoverProbability));
+		properties.setProperty("maxIterations", Integer.toString(maxIterations));
+		properties.setProperty("sawToothPeriod", Integer.toString(sawToothPeriod));
+		properties.setProperty("selection", selection.name());
+		properties.setProperty("crossover", crossover.name());
+		properties.setProperty("mutation", mutation.name());
+		properties.setProperty("screenChildren", Boolean.toString(screenChildren));
+		properties.setProperty("screeningMargin", Double.toString(screeningMargin));
+		properties.setProperty("screeningProportion", Double.toString(screeningProportion));
+		properties.setProperty("localSearchProbability", Double.toString(localSearchProbability));
+		properties.setProperty("localSearchMoves", Integer.toString(localSearchMoves));
+		properties.setProperty("localSearchStep", Integer.toString(localSearchStep));
+		properties.store(out, comments);
+	}
+
+	// a copy with the settings written by store, any left out are kept as they are
+	public Configuration load(Reader in) throws IOException {
+		Properties properties = new Properties();
+		properties.load(in);
+		Configuration configuration = copy();
+		configuration.popSize = Integer.parseInt(properties.getProperty("popSize", Integer.toString(popSize)));
+		configuration.tournamentSize = Integer.parseInt(properties.getProperty("tournamentSize", Integer.toString(tournamentSize)));
+		configuration.mutationRateMax = Integer.parseInt(properties.getProperty("mutationRateMax", Integer.toString(mutationRateMax)));
+		configuration.mutationProbability = Double.parseDouble(properties.getProperty("mutationProbability", Double.toString(mutationProbability)));
+		configuration.crossoverProbability = Double.parseDouble(properties.getProperty("crossoverProbability", Double.toString(crossoverProbability)));
+		configuration.maxIterations = Integer.parseInt(properties.getProperty("maxIterations", Integer.toString(maxIterations)));
+		configuration.sawToothPeriod = Integer.parseInt(properties.getProperty("sawToothPeriod", Integer.toString(sawToothPeriod)));
+		configuration.selection = Selection.valueOf(properties.getProperty("selection", selection.name()));
+		configuration.crossover = Crossover.valueOf(properties.getProperty("crossover", crossover.name()));
+		configuration.mutation = Mutation.valueOf(properties.getProperty("mutation", mutation.name()));
+		configuration.screenChildren = Boolean.parseBoolean(properties.getProperty("screenChildren", Boolean.toString(screenChildren)));
+		configuration.screeningMargin = Double.parseDouble(properties.getProperty("screeningMargin", Double.toString(screeningMargin)));
+		configuration.screeningProportion = Double.parseDouble(properties.getProperty("screeningProportion", Double.toString(screeningProportion)));
+		configuration.localSearchProbability = Double.parseDouble(properties.getProperty("localSearchProbability", Double.toString(localSearchProbability)));
+		configuration.localSearchMoves = Integer.parseInt(properties.getProperty("localSearchMoves", Integer.toString(localSearchMoves)));
+		configuration.localSearchStep = Integer.parseInt(properties.getProperty("localSearchStep", Integer.toString(localSearchStep)));
+		return configuration;
+	}
+}
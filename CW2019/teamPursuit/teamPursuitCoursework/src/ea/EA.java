@@ -18,90 +18,354 @@ import java.sql.Time;
  */
 
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
 
+import teamPursuit.Fidelity;
 import teamPursuit.TeamPursuit;
 import teamPursuit.WomensTeamPursuit;
 
 public class EA implements Runnable{
 	
+	// recent results of the events of every EA set up from Parameters, so that no genome is
+	// simulated twice in a row
+	public static FitnessCache cache = new FitnessCache(Parameters.cacheSize);
+	// counters for every EA in the JVM, also published over JMX
+	public static EAStatistics statistics = EAStatistics.register();
+	
 	// create a new team with the default settings
-	public static TeamPursuit teamPursuit = new WomensTeamPursuit(); 
+	private final TeamPursuit teamPursuit = new WomensTeamPursuit(); 
+	// the same team simulated coarsely, for screening children
+	private final TeamPursuit screening = new WomensTeamPursuit();
+	private SplittableRandom rnd;
 	
-	private ArrayList<Individual> population = new ArrayList<Individual>();
-	private int iteration = 0;
-	int y = (Parameters.maxIterations / 125);
+	private final Population population;
+	// only an EA with a population of its own shrinks and re-initialises it
+	private final boolean resizing;
+	private Evaluator evaluator;
+	private final Configuration configuration;
+	private final FitnessCache fitnessCache;
+	private final ProgressReporter progress;
+	private int iteration = 0, count = 0;
+	private int screened = 0, saved = 0;
+	private int refined = 0, improvedMoves = 0, triedMoves = 0;
+	private boolean resumed = false;
+	int y;
 	long sTime = 0, timeE = 0;
 	
 	
 	public EA() {
-		
+		this(Configuration.fromParameters());
+	}
+	
+	// an EA with settings of its own, for running several side by side
+	public EA(Configuration configuration) {
+		this(configuration, new SplittableRandom(configuration.seed), configuration.parallelism, new Population(), true);
+	}
+	
+	// an EA with settings of its own drawing on a stream split from another, for an island
+	EA(Configuration configuration, SplittableRandom rnd) {
+		this(configuration, rnd, configuration.parallelism, new Population(), true);
+	}
+	
+	// an EA breeding into a population shared with others, which must be thread safe
+	EA(SplittableRandom rnd, int parallelism, ConcurrentPopulation population) {
+		this(Configuration.fromParameters(), rnd, parallelism, population, false);
+	}
+	
+	private EA(Configuration configuration, SplittableRandom rnd, int parallelism, Population population, boolean resizing) {
+		this.configuration = configuration;
+		this.fitnessCache = configuration.cache;
+		this.progress = ProgressReporter.forConfiguration(configuration);
+		this.y = configuration.sawToothPeriod > 0 ? configuration.sawToothPeriod : configuration.maxIterations / 125;
+		this.rnd = rnd;
+		this.population = population;
+		this.resizing = resizing;
+		this.evaluator = new Evaluator(parallelism, fitnessCache);
+		screening.setFidelity(Fidelity.COARSE);
+		// only the finish time and energies are used for the fitness
+		teamPursuit.setRecordVelocityProfile(false);
+		screening.setRecordVelocityProfile(false);
 	}
 
 	
+	// --config takes the settings in a file written by Configuration.store over those in
+	// Parameters, --seed repeats the run that printed that seed, and --resume carries on
+	// from the checkpoint file, or the one named after it
 	public static void main(String[] args) {
-		EA ea = new EA();
-		ea.run();
+		Configuration configuration = Configuration.fromParameters();
+		String checkpoint = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("--config") && i + 1 < args.length) {
+					Reader in = new FileReader(args[++i]);
+					try {
+						configuration = configuration.load(in);
+					} finally {
+						in.close();
+					}
+				} else if (args[i].equals("--seed") && i + 1 < args.length) {
+					configuration.seed = Long.parseLong(args[++i]);
+				} else if (args[i].equals("--resume")) {
+					checkpoint = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : configuration.checkpointFile;
+				}
+			}
+			EA ea = new EA(configuration);
+			if (checkpoint != null) {
+				ea.resume(checkpoint);
+			}
+			ea.run();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}  
 
 	public void run() {
-		initialisePopulation();	
-		sTime = System.currentTimeMillis();
+		if (!resumed) {
+			initialise();
+		}
 		System.out.println("finished init pop");
 		System.out.println();
 		System.out.println("Parameters:");
-		System.out.println("Population size: "+ Parameters.popSize);
-		System.out.println("Iterations: "+ Parameters.maxIterations);
+		System.out.println("Seed: "+ configuration.seed);
+		System.out.println("Population size: "+ configuration.popSize);
+		System.out.println("Iterations: "+ configuration.maxIterations);
 		System.out.println("Y: "+ y);
-		int count = 0;
+		Individual best = evolve();
+		best.print();
+		if (configuration.screenChildren) {
+			System.out.println("Exact evaluations saved by screening: " + saved + " of " + screened + " children");
+		}
+		if (configuration.localSearchProbability > 0) {
+			System.out.println("Local search: " + refined + " children refined, " + improvedMoves + " of " + triedMoves + " moves improved");
+		}
+		System.out.println("Fitness cache " + fitnessCache);
+		
+	}
+	
+	// iterates from an initialised or resumed population to the end of the run, writing
+	// only progress records and checkpoints, and returns the best
+	Individual evolve() {
+		try {
+			progress.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		while(iteration < configuration.maxIterations) {
+			iterate();
+			reportStats();
+			if (configuration.checkpointInterval > 0 && iteration % configuration.checkpointInterval == 0) {
+				checkpoint(configuration.checkpointFile);
+			}
+		}
+		try {
+			progress.close();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		timeE = (System.currentTimeMillis() - sTime) / 1000;
+		return population.getBest();
+	}
+
+	void initialise() {
+		initialisePopulation();	
+		statistics.offerBest(population.getBest().getFitness());
+		sTime = System.currentTimeMillis();
+		count = 0;
 		iteration = 0;
-		while(iteration < Parameters.maxIterations) {
-			iteration++;
-			count++;
-			Individual parent1 = rouletteSelection();
-			Individual parent2 = rouletteSelection();
-			Individual child = twoPointCrossover(parent1, parent2);			
-			child = mutate(child);
-			child.evaluate(teamPursuit);
-			replace(child);
-			sawTooth(count, y);
-			printStats();
-			if(count == y) {
-				count = 0;
+	}
+	
+	// one steady state step: select, crossover, mutate, evaluate and replace
+	void iterate() {
+		IterationEvent event = new IterationEvent();
+		event.begin();
+		iteration++;
+		count++;
+		Individual parent1 = select();
+		Individual parent2 = select();
+		Individual child = breed(parent1, parent2);			
+		child = mutate(child);
+		Individual worst = population.getWorst();
+		if (!configuration.screenChildren || mightEnter(child, worst.getFitness())) {
+			//children that cannot beat the worst are only simulated until that is certain
+			child.evaluate(teamPursuit, worst.getFitness(), fitnessCache);
+			if (child.getFitness() < worst.getFitness() && configuration.localSearchProbability > 0
+					&& rnd.nextDouble() < configuration.localSearchProbability) {
+				child = localSearch(child);
+			}
+			replace(child, worst);
+		} else {
+			ReplacementEvent rejected = new ReplacementEvent();
+			if (rejected.shouldCommit()) {
+				rejected.screenedOut = true;
+				rejected.childFitness = child.getScreeningFitness();
+				rejected.worstFitness = worst.getFitness();
+				rejected.commit();
 			}
-			timeE = System.currentTimeMillis() - sTime;
-			timeE = timeE/1000;
-			System.out.println("p:"+population.size()+ "\t c:"+count+ " \t y:"+y + "\t Time Elipsed: " + timeE + "s");
 		}
-		Individual best = getBest(population);			
-		best.print();
-		
+		if (resizing) {
+			sawTooth(count, y);
+		}
+		if(count == y) {
+			count = 0;
+		}
+		statistics.iterated();
+		event.end();
+		if (event.shouldCommit()) {
+			event.iteration = iteration;
+			event.populationSize = population.size();
+			event.bestFitness = population.getBest().getFitness();
+			event.worstFitness = population.getWorst().getFitness();
+			event.commit();
+		}
 	}
 
-	private void printStats() {		
-		int b = 0,w = 0;
-		double bestF = 0;
-		b = population.indexOf(getBest(population));
+	/*
+	 * 
+	 * 
+	 * CHECKPOINTS
+	 * 
+	 * 
+	 */
+	
+	private static final int CHECKPOINT_MAGIC = 0x45414350, CHECKPOINT_VERSION = 2;
+	
+	// writes everything the rest of the run depends on to a temporary file, then moves it
+	// over the checkpoint in one step, so a crash while writing leaves the last one intact.
+	// The random numbers carry on from a new seed drawn here, which is all that needs to be
+	// written to pick them up again
+	void checkpoint(String file) {
+		long seed = rnd.nextLong();
+		rnd = new SplittableRandom(seed);
+		Path path = Paths.get(file);
+		Path partial = Paths.get(file + ".tmp");
+		try {
+			FileOutputStream stream = new FileOutputStream(partial.toFile());
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+			try {
+				out.writeInt(CHECKPOINT_MAGIC);
+				out.writeInt(CHECKPOINT_VERSION);
+				out.writeLong(seed);
+				out.writeInt(iteration);
+				out.writeInt(count);
+				out.writeInt(y);
+				out.writeInt(screened);
+				out.writeInt(saved);
+				out.writeInt(refined);
+				out.writeInt(improvedMoves);
+				out.writeInt(triedMoves);
+				out.writeLong(System.currentTimeMillis() - sTime);
+				population.write(out);
+				fitnessCache.write(out);
+				out.flush();
+				stream.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// restores a run from a checkpoint, run then carries on exactly as the run that wrote
+	// it did. The parameters must be the same
+	void resume(String file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			rnd = new SplittableRandom(in.readLong());
+			iteration = in.readInt();
+			count = in.readInt();
+			y = in.readInt();
+			screened = in.readInt();
+			saved = in.readInt();
+			refined = in.readInt();
+			improvedMoves = in.readInt();
+			triedMoves = in.readInt();
+			sTime = System.currentTimeMillis() - in.readLong();
+			population.read(in, teamPursuit);
+			fitnessCache.read(in, teamPursuit);
+		} finally {
+			in.close();
+		}
+		statistics.offerBest(population.getBest().getFitness());
+		resumed = true;
+	}
+	
+	// records the iteration for the progress reporter to write out later
+	private void reportStats() {		
+		Individual best = population.getBest();
+		Individual worst = population.getWorst();
 		//takes off the modified fitness
-		bestF = population.get(b).getFitness();
-		bestF -= (population.get(b).getER()/200);
-		w = population.indexOf(getWorst(population));
+		double bestF = best.getFitness();
+		bestF -= (best.getER()/200);
 		
-		System.out.println("" + iteration + "\t B:" + bestF + " ER"
-				+ ": " + getBest(population).getER() + "\t W:" + getWorst(population)+ " ER: "+
-					getWorst(population).getER());		
+		progress.iteration(iteration, bestF, best.getER(), worst.getFitness(), worst.getER(), population.size(),
+				count, y, System.currentTimeMillis() - sTime);
 	}
 
 
-	private void replace(Individual child) {
-		Individual worst = getWorst(population);
-		if(child.getFitness() < worst.getFitness()){
-			int idx = population.indexOf(worst);
-			population.set(idx, child);
+	// screens a child at coarse fidelity, it is only worth an exact evaluation if its coarse
+	// fitness is within the margin of the worst. Coarse steps use up energy sooner, so a
+	// coarse race that only failed near the end may still finish at exact fidelity
+	private boolean mightEnter(Individual child, double worst) {
+		double threshold = worst + configuration.screeningMargin;
+		child.evaluate(screening, threshold, fitnessCache);
+		screened++;
+		if (child.getScreeningFitness() < threshold) {
+			return true;
+		}
+		if (!child.screening.isDominated() && child.screening.getProportionCompleted() >= configuration.screeningProportion) {
+			return true;
+		}
+		saved++;
+		return false;
+	}
+	
+	// the children of a crossover are compared at the fidelity they are screened at
+	private TeamPursuit childEvent() {
+		return configuration.screenChildren ? screening : teamPursuit;
+	}
+	
+	private double childFitness(Individual child) {
+		return configuration.screenChildren ? child.getScreeningFitness() : child.getFitness();
+	}
+	
+	// the worst is passed in as it was found before the child was evaluated. In a shared
+	// population others may have replaced it since, so the child is compared again with
+	// the worst at the moment it goes in
+	private void replace(Individual child, Individual worst) {
+		ReplacementEvent event = new ReplacementEvent();
+		event.begin();
+		boolean accepted = population.replaceWorstIfBetter(child);
+		if(accepted){
+			statistics.offerBest(child.getFitness());
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.accepted = accepted;
+			event.childFitness = child.getFitness();
+			event.worstFitness = worst.getFitness();
+			event.commit();
 		}
 	}
 	
@@ -115,26 +379,99 @@ public class EA implements Runnable{
 	
 	private void sawTooth(Integer count, Integer y) {
 		//initialise variables
-		int t, x = 0;
+		int x = 0;
+		SawToothEvent event = new SawToothEvent();
+		event.begin();
 		//if the population is less than or equal to 1/2 the max pop then re-initialise those values
 		
 		if ((count.intValue() == y.intValue()) && (population.size() >= 10)) { 
-			//find the worst Individual
-			Individual worst = getWorst(population);
-			t = population.indexOf(worst);
-			//remove it from the population
-			population.remove(t);
+			//remove the worst Individual from the population, the last individual takes its place
+			population.removeWorst();
 			//increase the counter to the next value to be removed
 			//y += (Parameters.maxIterations / 125);		
 			//print current population size
 			x = population.size();
-			System.out.println("Population: " + population.size());	
+			progress.shrunk(iteration, population.size(), System.currentTimeMillis() - sTime);
+			sawToothEvent(event, "shrink");
 		}else if((count.intValue() == y.intValue()) && (x < 10)){
 			initialisePopulation();
-			System.out.println("Population  Re-initialised");
+			progress.reinitialised(iteration, population.size(), System.currentTimeMillis() - sTime);
+			sawToothEvent(event, "reinitialise");
 		}
 	
 	}
+	
+	private void sawToothEvent(SawToothEvent event, String action) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.action = action;
+			event.populationSize = population.size();
+			event.commit();
+		}
+	}
+
+	/*
+	 * 
+	 * 
+	 * Local search
+	 * 
+	 * 
+	 */
+	
+	// first improvement hill climbing from a child that would enter the population. A move
+	// changes the genome from one segment on, so the neighbour resumes the child's race from
+	// there, and it is only simulated until it can no longer beat the child
+	private Individual localSearch(Individual child) {
+		refined++;
+		for (int move = 0; move < configuration.localSearchMoves; move++) {
+			Individual neighbour = child.copy();
+			if (!neighbourhoodMove(neighbour)) {
+				continue;
+			}
+			neighbour.invalidate();
+			neighbour.evaluate(teamPursuit, child.getFitness(), fitnessCache);
+			triedMoves++;
+			if (neighbour.getFitness() < child.getFitness()) {
+				child = neighbour;
+				improvedMoves++;
+			}
+		}
+		return child;
+	}
+	
+	// one power up or down by the step, the step moved from one segment to another, or one
+	// transition flipped, each as likely. False if the move would leave the range of powers
+	private boolean neighbourhoodMove(Individual individual) {
+		int step = configuration.localSearchStep;
+		switch (rnd.nextInt(3)) {
+		case 0:
+			int segment = rnd.nextInt(individual.pacingStrategy.length);
+			return shiftPower(individual, segment, rnd.nextBoolean() ? step : -step);
+		case 1:
+			int from = rnd.nextInt(individual.pacingStrategy.length);
+			int to = rnd.nextInt(individual.pacingStrategy.length - 1);
+			if (to >= from) {
+				to++;
+			}
+			if (!shiftPower(individual, from, -step)) {
+				return false;
+			}
+			return shiftPower(individual, to, step);
+		default:
+			int index = rnd.nextInt(individual.transitionStrategy.length);
+			individual.transitionStrategy[index] = !individual.transitionStrategy[index];
+			return true;
+		}
+	}
+	
+	private boolean shiftPower(Individual individual, int segment, int watts) {
+		int power = individual.pacingStrategy[segment] + watts;
+		if (power < TeamPursuit.MINIMUM_POWER || power > TeamPursuit.MAXIMUM_POWER) {
+			return false;
+		}
+		individual.pacingStrategy[segment] = power;
+		return true;
+	}
 
    /*
     * 
@@ -146,7 +483,9 @@ public class EA implements Runnable{
 	
 	private Individual mutate(Individual child){
 
-		//child = oGmutate(child);
+		if (configuration.mutation == Configuration.Mutation.RANDOM_RESET) {
+			return oGmutate(child);
+		}
 		child = scrambleMutate(child);
 		child = creepMutate(child);
 		return child;
@@ -154,7 +493,7 @@ public class EA implements Runnable{
 	
 	private Individual creepMutate(Individual child) {
 		
-		if((Math.random()) >= Parameters.mutationProbability ) {
+		if((rnd.nextDouble()) >= configuration.mutationProbability ) {
 			return child;
 		}
 	
@@ -162,7 +501,7 @@ public class EA implements Runnable{
 		
 		for( i = 0; i < child.pacingStrategy.length; i++) {
 			t = child.pacingStrategy[i];
-			t += ThreadLocalRandom.current().nextInt(-50,50);
+			t += nextInt(-50,50);
 			if (t > 1200 ) {
 				t -= 50;
 			}else if( t < 200 ) {
@@ -170,33 +509,33 @@ public class EA implements Runnable{
 			}
 			child.pacingStrategy[i] = t;
 		}
-		
+		child.invalidate();
 		
 		return child;
 	}
 	
 	private Individual oGmutate(Individual child) {
-		if(Parameters.rnd.nextDouble() > Parameters.mutationProbability){
+		if(rnd.nextDouble() > configuration.mutationProbability){
 			return child;
 		}
 		// choose how many elements to alter
-		int mutationRate = 1 + Parameters.rnd.nextInt(Parameters.mutationRateMax);
+		int mutationRate = 1 + rnd.nextInt(configuration.mutationRateMax);
 		
 		// mutate the transition strategy
 
 			//mutate the transition strategy by flipping boolean value
 			for(int i = 0; i < mutationRate; i++){
-				int index = Parameters.rnd.nextInt(child.transitionStrategy.length);
+				int index = rnd.nextInt(child.transitionStrategy.length);
 				child.transitionStrategy[index] = !child.transitionStrategy[index];
 			}
 		//mutate pacing stratagey
 			//mutate pacing by randomising a value
 			for (int i = 0; i< mutationRate; i++) {
-				int index = Parameters.rnd.nextInt(child.pacingStrategy.length);
+				int index = rnd.nextInt(child.pacingStrategy.length);
 				//assign the pacing strat to a number between 200 and 500
-				child.pacingStrategy[index] = ThreadLocalRandom.current().nextInt(200,700);
+				child.pacingStrategy[index] = nextInt(200,700);
 			}
-			
+			child.invalidate();
 		
 		return child;
 	}
@@ -210,19 +549,19 @@ public class EA implements Runnable{
 	
 	private Individual scrambleMutate(Individual child) {
 		int a,b, i, x;
-		if((Math.random()) >= Parameters.mutationProbability ) {
+		if((rnd.nextDouble()) >= configuration.mutationProbability ) {
 			return child;
 		}
 		List<Integer> subS = new ArrayList<Integer>();
 		//pick two points
-		a = ThreadLocalRandom.current().nextInt(0, child.pacingStrategy.length);
-		b = ThreadLocalRandom.current().nextInt(0,child.pacingStrategy.length);
+		a = nextInt(0, child.pacingStrategy.length);
+		b = nextInt(0,child.pacingStrategy.length);
 		//create sub list
 		if (a < b) {
 			for(i = a; i<b; i++) {
 				subS.add(child.pacingStrategy[i]);
 			}
-			Collections.shuffle(subS);
+			shuffle(subS);
 			//reinsert to child
 			x=0;
 			for (i = a; i < b; i++) {
@@ -234,7 +573,7 @@ public class EA implements Runnable{
 				subS.add(child.pacingStrategy[i]);
 			}
 			//randomise the list
-			Collections.shuffle(subS);
+			shuffle(subS);
 			//reinsert to child
 			x = 0;
 			for (i = b; i < a; i++) {
@@ -244,13 +583,13 @@ public class EA implements Runnable{
 			
 		}
 		List<Boolean> subT = new ArrayList<Boolean>();
-		a = ThreadLocalRandom.current().nextInt(0, child.transitionStrategy.length);
-		b = ThreadLocalRandom.current().nextInt(0,child.transitionStrategy.length);
+		a = nextInt(0, child.transitionStrategy.length);
+		b = nextInt(0,child.transitionStrategy.length);
 		if (a < b) {			
 			for(i = a; i<b; i++) {
 				subT.add(child.transitionStrategy[i]);
 			}	
-			Collections.shuffle(subT);
+			shuffle(subT);
 			x=0;
 			for(i = a; i< b; i++) {
 				child.transitionStrategy[i] = subT.get(x);
@@ -260,13 +599,14 @@ public class EA implements Runnable{
 			for(i = b; i<a; i++) {
 				subT.add(child.transitionStrategy[i]);
 			}	
-			Collections.shuffle(subT);
+			shuffle(subT);
 			x=0;
 			for(i = b; i< a; i++) {
 				child.transitionStrategy[i] = subT.get(x);
 				x++;	
 			}
 		}
+		child.invalidate();
 		
 		return child;
 	}
@@ -287,15 +627,28 @@ public class EA implements Runnable{
 	 * 
 	 */
 	
+	// the crossover the configuration names
+	private Individual breed(Individual parent1, Individual parent2) {
+		switch (configuration.crossover) {
+		case ONE_POINT:
+			return crossover(parent1, parent2);
+		case UNIFORM:
+			return uniformCrossover(parent1, parent2);
+		default:
+			return twoPointCrossover(parent1, parent2);
+		}
+	}
+	
 	private Individual crossover(Individual parent1, Individual parent2) {
-		if(Parameters.rnd.nextDouble() > Parameters.crossoverProbability){
-			return parent1;
+		// a copy, as the parent may be the population's own individual and is mutated next
+		if(rnd.nextDouble() > configuration.crossoverProbability){
+			return parent1.copy();
 		}
 		Individual child1 = new Individual() ;
 		Individual child = new Individual() ;
 		
 		
-		int crossoverPoint = Parameters.rnd.nextInt(parent1.transitionStrategy.length);
+		int crossoverPoint = rnd.nextInt(parent1.transitionStrategy.length);
 		
 		// before crossover point use parent1
 		for(int i = 0; i < crossoverPoint; i++) {
@@ -317,11 +670,14 @@ public class EA implements Runnable{
 			child.transitionStrategy[i] = parent2.transitionStrategy[i];
 			child1.transitionStrategy[i] = parent1.transitionStrategy[i];
 		}
-		if( child1.getFitness() > child.getFitness()) {
-			System.out.println(child1);
+		child.result = parent1.result;
+		child1.result = parent2.result;
+		child.screening = parent1.screening;
+		child1.screening = parent2.screening;
+		evaluator.evaluate(Arrays.asList(child, child1), childEvent());
+		if (childFitness(child1) > childFitness(child)) {
 			return child1;
 		}else {
-			System.out.println(child);
 			return child;
 		}
 	}
@@ -337,8 +693,8 @@ public class EA implements Runnable{
 		Individual child = new Individual();
 		Individual child1 = new Individual();
 		
-		int i = 0, cp1 = Parameters.rnd.nextInt(parent1.transitionStrategy.length), 
-				cp2 = Parameters.rnd.nextInt(parent1.transitionStrategy.length), t;
+		int i = 0, cp1 = rnd.nextInt(parent1.transitionStrategy.length), 
+				cp2 = rnd.nextInt(parent1.transitionStrategy.length), t;
 		
 	
 		//If the second value is smaller than the first then switch them
@@ -362,8 +718,8 @@ public class EA implements Runnable{
 		}
 		
 		i = 0;
-		cp1 = Parameters.rnd.nextInt(parent1.pacingStrategy.length);
-		cp2 = Parameters.rnd.nextInt(parent1.pacingStrategy.length);
+		cp1 = rnd.nextInt(parent1.pacingStrategy.length);
+		cp2 = rnd.nextInt(parent1.pacingStrategy.length);
 		
 		//If the second value is smaller than the first then switch them
 		if ( cp1 > cp2 ) {
@@ -386,9 +742,12 @@ public class EA implements Runnable{
 		}
 		
 		//compare children, return best
-		child.evaluate(teamPursuit);
-		child1.evaluate(teamPursuit);
-		if (child1.getFitness() > child.getFitness()) {
+		child.result = parent1.result;
+		child1.result = parent2.result;
+		child.screening = parent1.screening;
+		child1.screening = parent2.screening;
+		evaluator.evaluate(Arrays.asList(child, child1), childEvent());
+		if (childFitness(child1) > childFitness(child)) {
 		return child1;
 		}else {
 			return child;
@@ -410,7 +769,7 @@ public class EA implements Runnable{
 		double r;
 		
 		for(i = 0; i < parent1.pacingStrategy.length; i++) {
-			r = Math.random();
+			r = rnd.nextDouble();
 			if (r < 0.5) {
 				child.pacingStrategy[i] = parent1.pacingStrategy[i];
 				child1.pacingStrategy[i] = parent2.pacingStrategy[i];
@@ -421,7 +780,7 @@ public class EA implements Runnable{
 			}
 		}
 		for(i = 0; i< parent1.transitionStrategy.length; i++) {
-			r = Math.random();
+			r = rnd.nextDouble();
 			if (r < 0.5) {
 				child.transitionStrategy[i] = parent1.transitionStrategy[i];
 				child1.transitionStrategy[i] = parent2.transitionStrategy[i];
@@ -431,9 +790,12 @@ public class EA implements Runnable{
 				child1.transitionStrategy[i] = parent1.transitionStrategy[i];
 			}
 		}
-		child.evaluate(teamPursuit);
-		child1.evaluate(teamPursuit);
-		if (child1.getFitness() > child.getFitness()) {
+		child.result = parent1.result;
+		child1.result = parent2.result;
+		child.screening = parent1.screening;
+		child1.screening = parent2.screening;
+		evaluator.evaluate(Arrays.asList(child, child1), childEvent());
+		if (childFitness(child1) > childFitness(child)) {
 		return child1;
 		}else {
 			return child;
@@ -453,6 +815,14 @@ public class EA implements Runnable{
 	 * 
 	 */
 	
+	// the selection the configuration names
+	private Individual select() {
+		if (configuration.selection == Configuration.Selection.TOURNAMENT) {
+			return tournamentSelection();
+		}
+		return rouletteSelection();
+	}
+	
 	/**
 	 * 
 	 * Returns a COPY of the individual selected using tournament selection
@@ -460,8 +830,8 @@ public class EA implements Runnable{
 	 */
 	private Individual tournamentSelection() {
 		ArrayList<Individual> candidates = new ArrayList<Individual>();
-		for(int i = 0; i < Parameters.tournamentSize; i++){
-			candidates.add(population.get(Parameters.rnd.nextInt(population.size())));
+		for(int i = 0; i < configuration.tournamentSize; i++){
+			candidates.add(population.get(rnd.nextInt(population.size())));
 		}
 		return getBest(candidates).copy();
 	}
@@ -474,31 +844,9 @@ public class EA implements Runnable{
 	 * 
 	 */
 	
+	// picks an individual with probability proportional to its fitness, in O(log n)
 	private Individual rouletteSelection() {
-		
-		int i, sumF, p;
-		double rand = 0;
-		sumF = 0;
-		p = 0;
-		
-		for (i = 0;i < population.size(); i++) {
-			sumF += population.get(i).getFitness();			
-		}	
-		
-		rand = Math.random()*sumF;
-		i = 0;
-		while(p <= rand) {
-			
-			p += population.get(i).getFitness();
-			i++;
-		}
-		
-		
-		return population.get(i-1);
-		
-		
-		
-		
+		return population.select(rnd);
 	}
 
 
@@ -514,31 +862,46 @@ public class EA implements Runnable{
 		return best;
 	}
 
-	private Individual getWorst(ArrayList<Individual> aPopulation) {
-		double worstFitness = 0;
-		Individual worst = null;
-		for(Individual individual : population){
-			if(individual.getFitness() > worstFitness || worst == null){
-				worst = individual;
-				worstFitness = worst.getFitness();
-			}
+	// a whole number from origin up to but not including bound
+	private int nextInt(int origin, int bound) {
+		return rnd.nextInt(origin, bound);
+	}
+	
+	// Collections.shuffle only takes a Random
+	private <T> void shuffle(List<T> list) {
+		for (int i = list.size(); i > 1; i--) {
+			Collections.swap(list, i - 1, rnd.nextInt(i));
 		}
-		return worst;
+	}
+	
+	Individual getBest() {
+		return population.getBest();
+	}
+	
+	FitnessCache getFitnessCache() {
+		return fitnessCache;
+	}
+	
+	// an individual from another population takes the place of the worst if it is better
+	void immigrate(Individual immigrant) {
+		replace(immigrant, population.getWorst());
 	}
 	
 	private void printPopulation() {
-		for(Individual individual : population){
-			System.out.println(individual);
+		for(int i = 0; i < population.size(); i++){
+			System.out.println(population.get(i));
 		}
 	}
 
 	private void initialisePopulation() {
-		while(population.size() < Parameters.popSize){
+		ArrayList<Individual> newIndividuals = new ArrayList<Individual>();
+		while(population.size() + newIndividuals.size() < configuration.popSize){
 			Individual individual = new Individual();
-			individual.initialise();			
-			individual.evaluate(teamPursuit);
-			population.add(individual);
+			individual.initialise(rnd);			
+			newIndividuals.add(individual);
 							
 		}		
+		evaluator.evaluate(newIndividuals, teamPursuit);
+		population.addAll(newIndividuals);
 	}	
 }
@@ -0,0 +1,78 @@
+package ea;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters kept by every EA in this JVM, cheap enough to update on every evaluation.
+ * They are also registered with the platform MBean server, see EAStatisticsMBean.
+ */
+public class EAStatistics implements EAStatisticsMBean {
+
+	private final AtomicLong evaluations = new AtomicLong();
+	private final AtomicLong iterations = new AtomicLong();
+	private volatile double bestFitness = Double.NaN;
+	private long lastPoll = System.nanoTime(), lastEvaluations = 0;
+
+
+	static EAStatistics register() {
+		EAStatistics statistics = new EAStatistics();
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("ea:type=EAStatistics");
+			if (!server.isRegistered(name)) {
+				server.registerMBean(statistics, name);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return statistics;
+	}
+
+	void evaluated(int races) {
+		evaluations.addAndGet(races);
+	}
+
+	void iterated() {
+		iterations.incrementAndGet();
+	}
+
+	// the best only ever improves, a steady state EA never replaces its best individual
+	synchronized void offerBest(double fitness) {
+		if (Double.isNaN(bestFitness) || fitness < bestFitness) {
+			bestFitness = fitness;
+		}
+	}
+
+	public long getEvaluations() {
+		return evaluations.get();
+	}
+
+	public synchronized double getEvaluationsPerSecond() {
+		long now = System.nanoTime();
+		long count = evaluations.get();
+		double rate = (count - lastEvaluations) / ((now - lastPoll) / 1e9);
+		lastPoll = now;
+		lastEvaluations = count;
+		return rate;
+	}
+
+	public long getIterations() {
+		return iterations.get();
+	}
+
+	public double getBestFitness() {
+		return bestFitness;
+	}
+
+	public long getCacheHits() {
+		return EA.cache.getHits();
+	}
+
+	public long getCacheMisses() {
+		return EA.cache.getMisses();
+	}
+}
@@ -0,0 +1,22 @@
+package ea;
+
+/**
+ * Counters for watching a run from JConsole or any other JMX client, registered as
+ * ea:type=EAStatistics.
+ */
+public interface EAStatisticsMBean {
+
+	// races simulated, not counting results taken from the fitness cache
+	long getEvaluations();
+
+	// evaluations per second since the previous call, or since the start for the first
+	double getEvaluationsPerSecond();
+
+	long getIterations();
+
+	double getBestFitness();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+}
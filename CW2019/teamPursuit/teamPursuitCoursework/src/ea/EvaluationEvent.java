@@ -0,0 +1,61 @@
+package ea;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+
+/**
+ * Flight recorder event for an individual's evaluation, whether it was simulated, resumed
+ * from an earlier result or found in the fitness cache. Individuals simulated together
+ * through simulateBatch each report the duration of the whole batch.
+ */
+@Name("ea.Evaluation")
+@Label("Evaluation")
+@Category({"Team Pursuit", "EA"})
+@Description("Evaluation of one individual")
+class EvaluationEvent extends Event {
+
+	@Label("Fidelity")
+	String fidelity;
+
+	@Label("Segments Simulated")
+	@Description("Segments actually simulated, not replayed from an earlier result")
+	int segmentsSimulated;
+
+	@Label("Completed")
+	@Description("The race finished with enough riders")
+	boolean completed;
+
+	@Label("Dominated")
+	@Description("Given up once the race could no longer finish within the bound")
+	boolean dominated;
+
+	@Label("Cached")
+	boolean cached;
+
+	@Label("Batch Size")
+	int batchSize;
+
+	@Label("Fitness")
+	double fitness;
+
+
+	void commit(TeamPursuit teamPursuit, SimulationResult result, boolean cached, int batchSize) {
+		end();
+		if (shouldCommit()) {
+			this.fidelity = teamPursuit.getFidelity().name();
+			this.segmentsSimulated = cached ? 0 : result.getSegmentsSimulated();
+			this.completed = result.getFinishTime() < Double.POSITIVE_INFINITY && !result.isDominated();
+			this.dominated = result.isDominated();
+			this.cached = cached;
+			this.batchSize = batchSize;
+			this.fitness = Individual.fitness(result);
+			commit();
+		}
+	}
+}
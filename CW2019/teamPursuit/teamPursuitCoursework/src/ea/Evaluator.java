@@ -0,0 +1,114 @@
+package ea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+
+/**
+ * Evaluates batches of individuals, spreading them over a fork/join pool when more than
+ * one thread is allowed. No random numbers are drawn while evaluating and the simulator
+ * is deterministic, so a batch gets exactly the same results as evaluating it in order.
+ * Individuals with no earlier result at the event's fidelity to resume from are simulated
+ * together through TeamPursuit.simulateBatch.
+ */
+class Evaluator {
+	
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private final FitnessCache cache;
+	
+	
+	Evaluator(int parallelism, FitnessCache cache) {
+		this.parallelism = parallelism;
+		this.cache = cache;
+		if (parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+		} else {
+			pool = null;
+		}
+	}
+	
+	void evaluate(List<Individual> batch, TeamPursuit teamPursuit) {
+		if (pool == null || batch.size() < 2) {
+			evaluateChunk(batch, teamPursuit, cache);
+			return;
+		}
+		int chunkSize = Math.max(1, batch.size() / parallelism);
+		pool.invoke(new EvaluateTask(batch, 0, batch.size(), chunkSize, teamPursuit, cache));
+	}
+	
+	private static void evaluateChunk(List<Individual> chunk, TeamPursuit teamPursuit, FitnessCache cache) {
+		ArrayList<Individual> fresh = new ArrayList<Individual>();
+		for (Individual individual : chunk) {
+			if (individual.getResult(teamPursuit) == null) {
+				if (!individual.lookUp(teamPursuit, cache)) {
+					fresh.add(individual);
+				}
+			} else {
+				individual.evaluate(teamPursuit, Double.POSITIVE_INFINITY, cache);
+			}
+		}
+		if (fresh.size() == 1) {
+			fresh.get(0).simulate(teamPursuit, Double.POSITIVE_INFINITY, cache);
+		} else if (fresh.size() > 1) {
+			boolean[][] transitionStrategies = new boolean[fresh.size()][];
+			int[][] pacingStrategies = new int[fresh.size()][];
+			for (int i = 0; i < fresh.size(); i++) {
+				transitionStrategies[i] = fresh.get(i).transitionStrategy;
+				pacingStrategies[i] = fresh.get(i).pacingStrategy;
+			}
+			try {
+				EvaluationEvent[] events = new EvaluationEvent[fresh.size()];
+				for (int i = 0; i < fresh.size(); i++) {
+					events[i] = new EvaluationEvent();
+					events[i].begin();
+				}
+				SimulationResult[] results = teamPursuit.simulateBatch(transitionStrategies, pacingStrategies);
+				EA.statistics.evaluated(results.length);
+				for (int i = 0; i < fresh.size(); i++) {
+					fresh.get(i).setResult(teamPursuit, results[i]);
+					fresh.get(i).remember(teamPursuit, cache);
+					events[i].commit(teamPursuit, results[i], false, fresh.size());
+				}
+			} catch (Exception e) {
+				// an invalid strategy in the batch, let each individual report its own problem
+				for (Individual individual : fresh) {
+					individual.simulate(teamPursuit, Double.POSITIVE_INFINITY, cache);
+				}
+			}
+		}
+	}
+	
+	private static class EvaluateTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final List<Individual> batch;
+		private final int from, to, chunkSize;
+		private final TeamPursuit teamPursuit;
+		private final FitnessCache cache;
+		
+		EvaluateTask(List<Individual> batch, int from, int to, int chunkSize, TeamPursuit teamPursuit, FitnessCache cache) {
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.teamPursuit = teamPursuit;
+			this.cache = cache;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				evaluateChunk(batch.subList(from, to), teamPursuit, cache);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new EvaluateTask(batch, from, mid, chunkSize, teamPursuit, cache), new EvaluateTask(batch, mid, to, chunkSize, teamPursuit, cache));
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package ea;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Runs the same EA several times over, each run with its own seed, configuration and
+ * fitness cache, several at once on a pool of threads. Every run writes its progress to
+ * run-N.csv in the output directory as it goes; once all are done runs.csv lists the best
+ * of each run and summary.csv gives the mean, median, quartiles and range of the best
+ * fitness, its energy remaining, its finish time and the wall time over the runs.
+ *
+ * The seeds of the runs are drawn from Parameters.seed, so the whole experiment can be
+ * repeated, and the results do not depend on how many runs share the threads.
+ *
+ * Usage: ExperimentRunner [runs] [threads] [output directory]
+ */
+public class ExperimentRunner {
+
+	private static final String [] METRICS = {"fitness", "energyRemaining", "finishTime", "seconds"};
+
+	private final Configuration configuration;
+	private final int runs, threads;
+	private final File directory;
+
+
+	public ExperimentRunner(Configuration configuration, int runs, int threads, File directory) {
+		this.configuration = configuration;
+		this.runs = runs;
+		this.threads = threads;
+		this.directory = directory;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		File directory = new File(args.length > 2 ? args[2] : "experiment");
+		ExperimentRunner runner = new ExperimentRunner(Configuration.fromParameters(), runs, threads, directory);
+		runner.run();
+	}
+
+	public void run() throws Exception {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create " + directory);
+		}
+		System.out.println("Runs: " + runs + "\t Threads: " + threads + "\t Iterations: " + configuration.maxIterations + "\t Output: " + directory);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			SplittableRandom seeds = new SplittableRandom(configuration.seed);
+			List<Future<Run>> running = new ArrayList<Future<Run>>();
+			for (int k = 0; k < runs; k++) {
+				running.add(pool.submit(run(k, seeds.nextLong())));
+			}
+			Run results[] = new Run[runs];
+			for (int k = 0; k < runs; k++) {
+				results[k] = running.get(k).get();
+				System.out.println("Run " + k + "\t B:" + results[k].values[0] + " ER: " + results[k].values[1] + "\t Time Elipsed: " + (long) results[k].values[3] + "s");
+			}
+			writeRuns(results);
+			writeSummary(results);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// each run is set up apart from the others, evaluating on its own thread
+	private Callable<Run> run(final int k, final long seed) {
+		final Configuration run = isolated(configuration, seed);
+		run.progressVerbosity = ProgressReporter.Verbosity.PERIODIC;
+		run.progressCsv = new File(directory, "run-" + k + ".csv").getPath();
+		return new Callable<Run>() {
+			public Run call() {
+				long start = System.nanoTime();
+				EA ea = new EA(run);
+				ea.initialise();
+				Individual best = ea.evolve();
+				double seconds = (System.nanoTime() - start) / 1e9;
+				return new Run(k, seed, new double[] {best.getFitness(), best.getER(), best.getFinishTime(), seconds});
+			}
+		};
+	}
+
+	// a copy for one of several runs at once, with its own seed and cache, evaluating on
+	// the thread it runs on and writing no checkpoints
+	static Configuration isolated(Configuration configuration, long seed) {
+		Configuration run = configuration.copy();
+		run.seed = seed;
+		run.cache = new FitnessCache(Parameters.cacheSize);
+		run.parallelism = 1;
+		run.checkpointInterval = 0;
+		return run;
+	}
+
+	private void writeRuns(Run [] results) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(new File(directory, "runs.csv")));
+		try {
+			out.write("run,seed");
+			for (String metric : METRICS) {
+				out.write("," + metric);
+			}
+			out.write("\n");
+			for (Run result : results) {
+				out.write(result.run + "," + result.seed);
+				for (double value : result.values) {
+					out.write("," + value);
+				}
+				out.write("\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeSummary(Run [] results) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(new File(directory, "summary.csv")));
+		try {
+			out.write("metric,runs,mean,median,q1,q3,iqr,min,max\n");
+			for (int m = 0; m < METRICS.length; m++) {
+				double values[] = new double[results.length];
+				double mean = 0;
+				for (int k = 0; k < results.length; k++) {
+					values[k] = results[k].values[m];
+					mean += values[k] / results.length;
+				}
+				Arrays.sort(values);
+				double q1 = quantile(values, 0.25), q3 = quantile(values, 0.75);
+				out.write(METRICS[m] + "," + values.length + "," + mean + "," + quantile(values, 0.5) + "," + q1 + "," + q3 + "," + (q3 - q1)
+						+ "," + values[0] + "," + values[values.length - 1] + "\n");
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// interpolates between the closest ranks of the sorted values
+	private static double quantile(double [] sorted, double p) {
+		double rank = p * (sorted.length - 1);
+		int below = (int) Math.floor(rank);
+		int above = Math.min(below + 1, sorted.length - 1);
+		return sorted[below] + (rank - below) * (sorted[above] - sorted[below]);
+	}
+
+	private static final class Run {
+		final int run;
+		final long seed;
+		// in the order of METRICS
+		final double values[];
+
+		Run(int run, long seed, double [] values) {
+			this.run = run;
+			this.seed = seed;
+			this.values = values;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package ea;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+
+/**
+ * Remembers the results of recent simulations, keyed by a 64-bit hash of the event, its
+ * fidelity and the genome, so that a genome that comes round again (a copy, a mutation that changed
+ * nothing, a child identical to its parent) is not simulated again. The least recently
+ * used result is dropped once the cache is full. A hit is only counted if the result
+ * really is for the same genome, so a hash collision costs a simulation rather than
+ * giving a wrong fitness.
+ *
+ * Only complete results are kept: a simulation given up at a bound says nothing about
+ * how the genome does against a higher bound. Changing an event's integrator while it
+ * shares a cache is not noticed, so clear the cache first.
+ */
+public class FitnessCache {
+
+	private final int capacity;
+	private final LinkedHashMap<Long, SimulationResult> results;
+	private long hits = 0, misses = 0;
+
+
+	public FitnessCache(final int capacity) {
+		this.capacity = capacity;
+		this.results = new LinkedHashMap<Long, SimulationResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, SimulationResult> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// returns the remembered result for the genome in the event at its current fidelity, or null
+	public synchronized SimulationResult get(TeamPursuit event, boolean[] transitionStrategy, int[] pacingStrategy) {
+		SimulationResult result = results.get(hash(event, transitionStrategy, pacingStrategy));
+		if (result != null && result.isResultFor(transitionStrategy, pacingStrategy)) {
+			hits++;
+			return result;
+		}
+		misses++;
+		return null;
+	}
+
+	public synchronized void put(TeamPursuit event, SimulationResult result, boolean[] transitionStrategy, int[] pacingStrategy) {
+		if (capacity > 0 && !result.isDominated()) {
+			results.put(hash(event, transitionStrategy, pacingStrategy), result);
+		}
+	}
+
+	public synchronized void clear() {
+		results.clear();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	// the results and counters, least recently used first so that reading them back in
+	// order restores the order they are dropped in
+	public synchronized void write(DataOutput out) throws IOException {
+		out.writeLong(hits);
+		out.writeLong(misses);
+		out.writeInt(results.size());
+		for (Map.Entry<Long, SimulationResult> entry : results.entrySet()) {
+			out.writeLong(entry.getKey());
+			entry.getValue().write(out);
+		}
+	}
+
+	// replaces the contents with results written by write for the event at either fidelity
+	public synchronized void read(DataInput in, TeamPursuit event) throws IOException {
+		results.clear();
+		hits = in.readLong();
+		misses = in.readLong();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			long key = in.readLong();
+			results.put(key, SimulationResult.read(in, event));
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		return "hits: " + hits + "\t misses: " + misses + "\t hit rate: " + (lookups == 0 ? 0 : (100 * hits / lookups)) + "%\t size: " + results.size();
+	}
+
+	static long hash(TeamPursuit event, boolean[] transitionStrategy, int[] pacingStrategy) {
+		long hash = mix(event.getClass().getName().hashCode());
+		hash = mix(hash ^ (event.getFidelity().ordinal() + (0x9E3779B97F4A7C15L * (transitionStrategy.length + 1))));
+		// transitions go in 64 at a time as the bits of a long
+		long transitions = 0;
+		for (int i = 0; i < transitionStrategy.length; i++) {
+			if (transitionStrategy[i]) {
+				transitions |= 1L << (i & 63);
+			}
+			if ((i & 63) == 63 || i == transitionStrategy.length - 1) {
+				hash = mix(hash ^ transitions);
+				transitions = 0;
+			}
+		}
+		for (int power : pacingStrategy) {
+			hash = mix(hash ^ power);
+		}
+		return hash;
+	}
+
+	// the SplitMix64 finaliser, every bit of the input affects every bit of the output
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
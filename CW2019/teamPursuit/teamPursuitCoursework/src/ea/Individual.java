@@ -1,6 +1,9 @@
 package ea;
 
-import java.util.concurrent.ThreadLocalRandom;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.SplittableRandom;
 
 import teamPursuit.*;
 
@@ -9,8 +12,12 @@ public class Individual {
 	
 	boolean[] transitionStrategy = new boolean[22] ;
 	int[] pacingStrategy = new int[23];
-	double energyRemain, outputF;
+	double energyRemain = Double.NaN, outputF;
 	SimulationResult result = null;	
+	// result of the last coarse fidelity evaluation, kept apart so each can be resumed
+	SimulationResult screening = null;
+	// worked out once when a result is set, NaN until then or once the genome has changed
+	private double fitness = Double.NaN, screeningFitness = Double.NaN, finishTime = Double.NaN;
 	
 	public Individual() {		
 		
@@ -20,15 +27,15 @@ public class Individual {
 	// an individual is initialised with a random strategy that will evolve
 	// the pacing strategy is initialised to the default strategy and remains fixed
 	
-	public void initialise(){
+	public void initialise(SplittableRandom rnd){
 		for(int i = 0; i < transitionStrategy.length; i++){
-			transitionStrategy[i] = Parameters.rnd.nextBoolean();
+			transitionStrategy[i] = rnd.nextBoolean();
 		}
 		
 		for(int i = 0; i < pacingStrategy.length; i++){
-			pacingStrategy[i] = ThreadLocalRandom.current().nextInt(300,500);;
+			pacingStrategy[i] = 300 + rnd.nextInt(200);
 		}
-		
+		invalidate();
 	}
 	
 	// this is just there in case you want to check the default strategies
@@ -40,18 +47,96 @@ public class Individual {
 		for(int i = 0; i < pacingStrategy.length; i++){
 			pacingStrategy[i] = Parameters.DEFAULT_WOMENS_PACING_STRATEGY[i];
 		}
-		
+		invalidate();
+	}
+	
+	// must be called after changing either strategy, the results are kept so the next
+	// evaluation can resume from them but the fitness no longer applies until then
+	public void invalidate() {
+		fitness = Double.NaN;
+		screeningFitness = Double.NaN;
+		finishTime = Double.NaN;
+		energyRemain = Double.NaN;
 	}
 	
 	
+	// the previous result (our own, or the parent's after crossover) lets the simulator
+	// skip the leading segments that have not changed
 	public void evaluate(TeamPursuit teamPursuit){		
+		evaluate(teamPursuit, Double.POSITIVE_INFINITY);
+	}
+	
+	// stops simulating once the race can no longer finish within the bound, the fitness
+	// is then a lower bound that is still above it
+	public void evaluate(TeamPursuit teamPursuit, double bound){		
+		evaluate(teamPursuit, bound, EA.cache);
+	}
+	
+	void evaluate(TeamPursuit teamPursuit, double bound, FitnessCache cache){		
+		EvaluationEvent event = new EvaluationEvent();
+		event.begin();
+		if (lookUp(teamPursuit, cache)) {
+			event.commit(teamPursuit, getResult(teamPursuit), true, 1);
+			return;
+		}
+		simulate(teamPursuit, bound, cache, event);
+	}
+	
+	// simulates without looking in the cache first, for callers that already have
+	void simulate(TeamPursuit teamPursuit, double bound, FitnessCache cache){
+		EvaluationEvent event = new EvaluationEvent();
+		event.begin();
+		simulate(teamPursuit, bound, cache, event);
+	}
+	
+	private void simulate(TeamPursuit teamPursuit, double bound, FitnessCache cache, EvaluationEvent event){
 		try {
-			result = teamPursuit.simulate(transitionStrategy, pacingStrategy);
+			SimulationResult previous = getResult(teamPursuit);
+			setResult(teamPursuit, teamPursuit.resume(previous, transitionStrategy, pacingStrategy, bound));
+			remember(teamPursuit, cache);
+			if (getResult(teamPursuit) != previous)
+				EA.statistics.evaluated(1);
+			event.commit(teamPursuit, getResult(teamPursuit), false, 1);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}		
 	}
 	
+	// takes the result from the cache if this genome has been simulated recently
+	boolean lookUp(TeamPursuit teamPursuit, FitnessCache cache) {
+		SimulationResult cached = cache.get(teamPursuit, transitionStrategy, pacingStrategy);
+		if (cached == null) {
+			return false;
+		}
+		setResult(teamPursuit, cached);
+		return true;
+	}
+	
+	void remember(TeamPursuit teamPursuit, FitnessCache cache) {
+		cache.put(teamPursuit, getResult(teamPursuit), transitionStrategy, pacingStrategy);
+	}
+	
+	// the result kept for the fidelity the event simulates at
+	SimulationResult getResult(TeamPursuit teamPursuit) {
+		if (teamPursuit.getFidelity() == Fidelity.COARSE)
+			return screening;
+		return result;
+	}
+	
+	void setResult(TeamPursuit teamPursuit, SimulationResult simulationResult) {
+		if (teamPursuit.getFidelity() == Fidelity.COARSE) {
+			screening = simulationResult;
+			screeningFitness = fitness(simulationResult);
+		} else {
+			result = simulationResult;
+			fitness = fitness(simulationResult);
+			energyRemain = energyRemaining(simulationResult);
+			finishTime = simulationResult.getFinishTime();
+			if (!simulationResult.isDominated() && simulationResult.getProportionCompleted() >= 0.999)
+				outputF = fitness;
+		}
+	}
+	
 	// this is a very basic fitness function
 	// if the race is not completed, the chromosome gets fitness 1000
 	// otherwise, the fitness is equal to the time taken
@@ -59,22 +144,49 @@ public class Individual {
 	// complete 10% or 90% of the race
 	
 	public double getFitness(){
+		return evaluated(fitness);
+	}
+	
+	// the same fitness from the last coarse fidelity evaluation
+	public double getScreeningFitness(){
+		return evaluated(screeningFitness);
+	}
+	
+	public double getFinishTime(){
+		return evaluated(finishTime);
+	}
+	
+	private static double evaluated(double value){
+		if (Double.isNaN(value))
+			throw new IllegalStateException("Individual has not been evaluated since its strategy last changed");
+		return value;
+	}
+	
+	static double fitness(SimulationResult result){
 		double fitness = 1000;		
 		
+		if (result != null && result.isDominated()){
+			fitness = result.getFinishTime();
+			fitness += ((energyRemaining(result))/200);
+			return fitness;
+		}
 		if (result == null || result.getProportionCompleted() < 0.999){
 			fitness = 1000-(100* result.getProportionCompleted());
-			fitness += ((getER())/200);
+			fitness += ((energyRemaining(result))/200);
 			return fitness;
 		}
 		else{				
 			fitness = result.getFinishTime();
-			fitness += ((getER())/200);
+			fitness += ((energyRemaining(result))/200);
 		}
-		outputF = fitness;
 		return fitness;
 	}
 	
 	public double getER(){
+		return evaluated(energyRemain);
+	}
+	
+	private static double energyRemaining(SimulationResult result){
 		double[] fitness = result.getEnergyRemaining();	
 		double totalER = 10000;
 	
@@ -84,7 +196,6 @@ public class Individual {
 				totalER = e;
 			}
 		}
-		energyRemain = totalER;
 		return totalER;
 	}
 	
@@ -99,15 +210,67 @@ public class Individual {
 		for(int i = 0; i < pacingStrategy.length; i++){
 			individual.pacingStrategy[i] = pacingStrategy[i];
 		}		
-		individual.evaluate(EA.teamPursuit);	
+		individual.result = result;
+		individual.screening = screening;
+		individual.fitness = fitness;
+		individual.screeningFitness = screeningFitness;
+		individual.finishTime = finishTime;
+		individual.energyRemain = energyRemain;
+		individual.outputF = outputF;
+		return individual;
+	}
+	
+	// the genome, both results and the fitness worked out from them, for a checkpoint
+	void write(DataOutput out) throws IOException {
+		for (boolean transition : transitionStrategy) {
+			out.writeBoolean(transition);
+		}
+		for (int power : pacingStrategy) {
+			out.writeInt(power);
+		}
+		writeResult(out, result);
+		writeResult(out, screening);
+		out.writeDouble(fitness);
+		out.writeDouble(screeningFitness);
+		out.writeDouble(finishTime);
+		out.writeDouble(energyRemain);
+		out.writeDouble(outputF);
+	}
+	
+	static Individual read(DataInput in, TeamPursuit teamPursuit) throws IOException {
+		Individual individual = new Individual();
+		for (int i = 0; i < individual.transitionStrategy.length; i++) {
+			individual.transitionStrategy[i] = in.readBoolean();
+		}
+		for (int i = 0; i < individual.pacingStrategy.length; i++) {
+			individual.pacingStrategy[i] = in.readInt();
+		}
+		individual.result = readResult(in, teamPursuit);
+		individual.screening = readResult(in, teamPursuit);
+		individual.fitness = in.readDouble();
+		individual.screeningFitness = in.readDouble();
+		individual.finishTime = in.readDouble();
+		individual.energyRemain = in.readDouble();
+		individual.outputF = in.readDouble();
 		return individual;
 	}
 	
+	private static void writeResult(DataOutput out, SimulationResult result) throws IOException {
+		out.writeBoolean(result != null);
+		if (result != null) {
+			result.write(out);
+		}
+	}
+	
+	private static SimulationResult readResult(DataInput in, TeamPursuit teamPursuit) throws IOException {
+		return in.readBoolean() ? SimulationResult.read(in, teamPursuit) : null;
+	}
+	
 	@Override
 	public String toString() {
 		String str = "";
-		if(result != null){
-			str += getFitness();
+		if(!Double.isNaN(fitness)){
+			str += fitness;
 		}
 		return str;
 	}
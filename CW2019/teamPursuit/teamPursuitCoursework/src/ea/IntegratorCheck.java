@@ -0,0 +1,222 @@
+package ea;
+
+import java.util.Random;
+
+import teamPursuit.Integrator;
+import teamPursuit.MensTeamPursuit;
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+import teamPursuit.WomensTeamPursuit;
+
+/***
+ * Regression check for the integrators: simulates the default strategy, the best strategies
+ * found so far and random variations of them with the reference 1 ms integrator and with
+ * an adaptive one, and reports the largest finish time difference and the steps per race.
+ * Both events are checked, the men's with the women's strategies stretched to its length.
+ *
+ * Usage: IntegratorCheck [tolerance] [allowed finish time difference in seconds] [random strategies]
+ *        [least proportion of races both integrators must complete]
+ *
+ * Finish times can only be compared on races both integrators complete, so the check also
+ * fails if too few do in either event for it to mean much.
+ *
+ * A rider who finishes within a few joules of running out can finish in one integrator and
+ * not in the other: with 1 ms steps a follower's energy goes up and down by several joules
+ * from one step to the next. Likewise a segment the reference integrator finishes within a
+ * tolerance sized distance of the end of a step can take a step more or less in the adaptive
+ * one, and as the followers' velocities alternate every step the rest of the race differs.
+ * A race whose finish times differ is simulated again at a hundredth of the tolerance, and
+ * if that agrees with the reference the difference was down to the tolerance. Both kinds
+ * of race are counted separately as marginal.
+ */
+public class IntegratorCheck {
+
+	private static final int [][] BEST_PACING_STRATEGIES = {
+		{599, 459, 350, 486, 442, 442, 497, 300, 350, 461, 514, 477, 300, 486, 442, 591, 350, 612, 350, 300, 300, 300, 300},
+		{665, 240, 376, 556, 359, 398, 331, 659, 507, 319, 493, 457, 343, 692, 328, 351, 544, 236, 487, 627, 495, 373, 256},
+		{661, 443, 307, 348, 541, 381, 244, 512, 522, 566, 555, 320, 607, 427, 395, 573, 276, 602, 589, 279, 612, 466, 225}};
+	private static final boolean [][] BEST_TRANSITION_STRATEGIES = {
+		{true, false, false, true, false, true, false, false, false, true, true, false, true, false, true, false, true, false, false, false, false, false},
+		{true, true, false, true, false, true, false, false, true, true, false, false, false, true, true, false, false, true, true, true, false, false},
+		{true, true, true, false, false, true, false, true, false, true, false, false, true, true, true, false, false, true, true, false, false, false}};
+	private static final String [] BEST_NAMES = {"best 3000", "best 10000", "best 100000"};
+
+	// a race only one integrator completes is marginal if its weakest rider finished with less energy than this
+	private static final double MARGINAL_ENERGY = 50.0;
+	// how much tighter the tolerance is for simulating a race with differing finish times again
+	private static final double CLOSER = 0.01;
+
+	private final TeamPursuit reference;
+	private final TeamPursuit adaptive;
+	private final TeamPursuit closer;
+
+	private double maxDifference = 0.0;
+	private long referenceSteps = 0, adaptiveSteps = 0;
+	private int races = 0, completedByBoth = 0, marginal = 0, failures = 0;
+	private long referenceNanos = 0, adaptiveNanos = 0;
+
+
+	public IntegratorCheck(boolean mens, double tolerance) throws Exception {
+		this.reference = event(mens);
+		this.adaptive = event(mens);
+		this.closer = event(mens);
+		adaptive.setIntegrator(Integrator.adaptive(tolerance));
+		closer.setIntegrator(Integrator.adaptive(tolerance * CLOSER));
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		double tolerance = args.length > 0 ? Double.parseDouble(args[0]) : 1e-6;
+		double allowed = args.length > 1 ? Double.parseDouble(args[1]) : 0.001;
+		int randomStrategies = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		double leastCompleted = args.length > 3 ? Double.parseDouble(args[3]) : 0.25;
+
+		IntegratorCheck womens = new IntegratorCheck(false, tolerance);
+		IntegratorCheck mens = new IntegratorCheck(true, tolerance);
+		System.out.println("Reference: " + Integrator.REFERENCE + "\t Adaptive: " + womens.adaptive.getIntegrator());
+		boolean passed = womens.run("Women's", randomStrategies, allowed, leastCompleted);
+		passed &= mens.run("Men's", randomStrategies, allowed, leastCompleted);
+		System.out.println();
+		System.out.println(passed ? "PASS" : "FAIL");
+		if (!passed)
+			System.exit(1);
+	}
+
+	// checks the event's strategies and prints a summary, returning whether it passed
+	private boolean run(String name, int randomStrategies, double allowed, double leastCompleted) throws Exception {
+		int segments = reference.getRaceSegments();
+		int [] defaultPacing = stretch(Parameters.DEFAULT_WOMENS_PACING_STRATEGY, segments);
+		boolean [] defaultTransitions = stretch(Parameters.DEFAULT_WOMENS_TRANSITION_STRATEGY, segments - 1);
+		System.out.println();
+		System.out.println(name + " team pursuit");
+		compare("default", defaultTransitions, defaultPacing, allowed, true);
+		for (int i = 0; i < BEST_NAMES.length; i++) {
+			compare(BEST_NAMES[i], stretch(BEST_TRANSITION_STRATEGIES[i], segments - 1), stretch(BEST_PACING_STRATEGIES[i], segments), allowed, true);
+		}
+
+		// random variations, each power moved up or down by up to 40: half of the default
+		// strategy with every power first raised by the same random amount, up to 80, and
+		// fresh transitions, which mostly finish; half of the best strategies, which in the
+		// women's event mostly do not, as those are already near the limit of the riders' energy
+		Random rnd = new Random(0);
+		for (int k = 0; k < randomStrategies; k++) {
+			int [] pacing;
+			boolean [] transitions;
+			int raise = 0;
+			if (k % 2 == 0) {
+				pacing = defaultPacing.clone();
+				transitions = new boolean[segments - 1];
+				for (int i = 0; i < transitions.length; i++) {
+					transitions[i] = rnd.nextBoolean();
+				}
+				raise = rnd.nextInt(81);
+			} else {
+				int b = (k / 2) % BEST_NAMES.length;
+				pacing = stretch(BEST_PACING_STRATEGIES[b], segments);
+				transitions = stretch(BEST_TRANSITION_STRATEGIES[b], segments - 1);
+			}
+			for (int i = 0; i < pacing.length; i++) {
+				pacing[i] = Math.max(200, Math.min(1200, pacing[i] + raise + rnd.nextInt(81) - 40));
+			}
+			compare("random " + k, transitions, pacing, allowed, false);
+		}
+
+		System.out.println("Races: " + races + "\t completed by both: " + completedByBoth + "\t marginal: " + marginal + "\t failures: " + failures);
+		System.out.println("Largest finish time difference outside marginal races: " + maxDifference + "s (allowed " + allowed + "s)");
+		System.out.println("Steps per race: reference " + (referenceSteps / races) + "\t adaptive " + (adaptiveSteps / races));
+		System.out.println("Time per race: reference " + (referenceNanos / races / 1000) + "us\t adaptive " + (adaptiveNanos / races / 1000) + "us");
+		boolean enough = completedByBoth >= leastCompleted * races;
+		if (!enough)
+			System.out.println("Too few races completed by both: " + completedByBoth + " of " + races + " (at least "
+					+ (int) Math.ceil(leastCompleted * races) + " needed)");
+		return failures == 0 && enough;
+	}
+
+	private void compare(String name, boolean [] transitions, int [] pacing, double allowed, boolean print) throws Exception {
+		long start = System.nanoTime();
+		SimulationResult expected = reference.simulate(transitions, pacing);
+		long middle = System.nanoTime();
+		SimulationResult actual = adaptive.simulate(transitions, pacing);
+		long end = System.nanoTime();
+
+		races++;
+		referenceNanos += middle - start;
+		adaptiveNanos += end - middle;
+		referenceSteps += expected.getIntegrationSteps();
+		adaptiveSteps += actual.getIntegrationSteps();
+
+		String outcome;
+		boolean expectedFinished = expected.getFinishTime() < Double.POSITIVE_INFINITY;
+		boolean actualFinished = actual.getFinishTime() < Double.POSITIVE_INFINITY;
+		if (expectedFinished && actualFinished) {
+			completedByBoth++;
+			double difference = Math.abs(expected.getFinishTime() - actual.getFinishTime());
+			if (difference <= allowed) {
+				maxDifference = Math.max(maxDifference, difference);
+				outcome = "ok";
+			} else if (Math.abs(expected.getFinishTime() - closer.simulate(transitions, pacing).getFinishTime()) <= allowed) {
+				marginal++;
+				outcome = "marginal";
+			} else {
+				maxDifference = Math.max(maxDifference, difference);
+				failures++;
+				outcome = "FAIL";
+			}
+		} else if (expectedFinished == actualFinished) {
+			if (expected.getProportionCompleted() != actual.getProportionCompleted()) {
+				failures++;
+				outcome = "FAIL";
+			} else {
+				outcome = "ok";
+			}
+		} else if (weakestRider(expectedFinished ? expected : actual) < MARGINAL_ENERGY) {
+			marginal++;
+			outcome = "marginal";
+		} else {
+			failures++;
+			outcome = "FAIL";
+		}
+
+		if (print || !outcome.equals("ok")) {
+			System.out.println(name + "\t reference: " + describe(expected) + "\t adaptive: " + describe(actual)
+					+ "\t steps: " + expected.getIntegrationSteps() + "/" + actual.getIntegrationSteps() + "\t " + outcome);
+		}
+	}
+
+	private static TeamPursuit event(boolean mens) {
+		if (mens)
+			return new MensTeamPursuit();
+		return new WomensTeamPursuit();
+	}
+
+	private static String describe(SimulationResult result) {
+		if (result.getFinishTime() < Double.POSITIVE_INFINITY)
+			return Double.toString(result.getFinishTime());
+		return "incomplete, " + result.getProportionCompleted();
+	}
+
+	private static double weakestRider(SimulationResult result) {
+		double weakest = Double.POSITIVE_INFINITY;
+		for (double energy : result.getEnergyRemaining()) {
+			weakest = Math.min(weakest, energy);
+		}
+		return weakest;
+	}
+
+	// the women's strategies spread over the men's longer race
+	private static int [] stretch(int [] strategy, int length) {
+		int [] stretched = new int[length];
+		for (int i = 0; i < length; i++) {
+			stretched[i] = strategy[i * strategy.length / length];
+		}
+		return stretched;
+	}
+
+	private static boolean [] stretch(boolean [] strategy, int length) {
+		boolean [] stretched = new boolean[length];
+		for (int i = 0; i < length; i++) {
+			stretched[i] = strategy[i * strategy.length / length];
+		}
+		return stretched;
+	}
+}
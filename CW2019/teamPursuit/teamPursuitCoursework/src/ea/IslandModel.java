@@ -0,0 +1,167 @@
+package ea;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Runs several EAs side by side, each with its own population, events and random numbers,
+ * one per thread. Every Parameters.migrationInterval iterations the islands stop, and each
+ * sends copies of its best individual to its neighbours, where they replace the worst if
+ * they are better. The islands run independently between migrations, so the throughput
+ * grows with the number of cores while the populations stay apart long enough to explore
+ * different strategies.
+ *
+ * Each island has a fitness cache of its own, as which children are simulated in full
+ * depends on what is in the cache, so a shared one would make the run depend on how the
+ * threads interleave. With their own caches the islands repeat exactly from the seed.
+ * They share the statistics, which are thread safe.
+ */
+public class IslandModel implements Runnable {
+
+	public enum Topology {
+		/** Island k sends to island k + 1, the last to the first. */
+		RING,
+		/** Every island sends to every other. */
+		FULLY_CONNECTED
+	}
+
+	private final EA islands[];
+	private final Topology topology;
+	private final int migrationInterval;
+
+
+	public IslandModel(int islands, Topology topology, int migrationInterval, long seed) {
+		this.islands = new EA[islands];
+		this.topology = topology;
+		this.migrationInterval = migrationInterval;
+		SplittableRandom streams = new SplittableRandom(seed);
+		Configuration configuration = Configuration.fromParameters();
+		for (int k = 0; k < islands; k++) {
+			Configuration island = configuration.copy();
+			island.cache = new FitnessCache(Parameters.cacheSize);
+			// each island evaluates on its own thread, the islands already use every core
+			island.parallelism = 1;
+			this.islands[k] = new EA(island, streams.split());
+		}
+	}
+
+
+	public static void main(String[] args) {
+		IslandModel model = new IslandModel(Parameters.islands, Parameters.topology, Parameters.migrationInterval, Parameters.seed);
+		model.run();
+	}
+
+	public void run() {
+		ExecutorService threads = Executors.newFixedThreadPool(islands.length);
+		try {
+			long start = System.currentTimeMillis();
+			run(threads, new InitialiseIsland());
+			System.out.println("Islands: " + islands.length + "\t Topology: " + topology + "\t Migration interval: " + migrationInterval);
+			int iteration = 0;
+			while (iteration < Parameters.maxIterations) {
+				final int iterations = Math.min(migrationInterval, Parameters.maxIterations - iteration);
+				run(threads, new IterateIsland(iterations));
+				iteration += iterations;
+				migrate();
+				printStats(iteration, start);
+			}
+			Individual best = getBest();
+			best.print();
+			for (int k = 0; k < islands.length; k++) {
+				System.out.println("Island " + k + " fitness cache " + islands[k].getFitnessCache());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	// each island sends a copy of its best to its neighbours, all chosen before any arrive
+	private void migrate() {
+		Individual emigrants[] = new Individual[islands.length];
+		for (int k = 0; k < islands.length; k++) {
+			emigrants[k] = islands[k].getBest();
+		}
+		for (int k = 0; k < islands.length; k++) {
+			if (topology == Topology.RING) {
+				islands[(k + 1) % islands.length].immigrate(emigrants[k].copy());
+			} else {
+				for (int j = 0; j < islands.length; j++) {
+					if (j != k) {
+						islands[j].immigrate(emigrants[k].copy());
+					}
+				}
+			}
+		}
+	}
+
+	private Individual getBest() {
+		Individual best = null;
+		for (EA island : islands) {
+			if (best == null || island.getBest().getFitness() < best.getFitness()) {
+				best = island.getBest();
+			}
+		}
+		return best;
+	}
+
+	private void printStats(int iteration, long start) {
+		StringBuilder line = new StringBuilder();
+		line.append(iteration).append("\t B:").append(getBest().getFitness()).append("\t islands:");
+		for (EA island : islands) {
+			line.append(' ').append(island.getBest().getFitness());
+		}
+		line.append("\t Time Elipsed: ").append((System.currentTimeMillis() - start) / 1000).append('s');
+		System.out.println(line);
+	}
+
+	// runs the step on every island at once and waits for all of them
+	private void run(ExecutorService threads, IslandStep step) throws Exception {
+		List<Future<Void>> running = new ArrayList<Future<Void>>();
+		for (EA island : islands) {
+			running.add(threads.submit(step.on(island)));
+		}
+		for (Future<Void> future : running) {
+			future.get();
+		}
+	}
+
+	private static abstract class IslandStep {
+		abstract void step(EA island);
+
+		Callable<Void> on(final EA island) {
+			return new Callable<Void>() {
+				public Void call() {
+					step(island);
+					return null;
+				}
+			};
+		}
+	}
+
+	private static class InitialiseIsland extends IslandStep {
+		void step(EA island) {
+			island.initialise();
+		}
+	}
+
+	private static class IterateIsland extends IslandStep {
+		private final int iterations;
+
+		IterateIsland(int iterations) {
+			this.iterations = iterations;
+		}
+
+		void step(EA island) {
+			for (int i = 0; i < iterations; i++) {
+				island.iterate();
+			}
+		}
+	}
+}
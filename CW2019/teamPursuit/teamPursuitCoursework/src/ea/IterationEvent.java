@@ -0,0 +1,28 @@
+package ea;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one steady state iteration of the EA, from selecting the
+ * parents to replacing the worst.
+ */
+@Name("ea.Iteration")
+@Label("EA Iteration")
+@Category({"Team Pursuit", "EA"})
+class IterationEvent extends Event {
+
+	@Label("Iteration")
+	int iteration;
+
+	@Label("Population Size")
+	int populationSize;
+
+	@Label("Best Fitness")
+	double bestFitness;
+
+	@Label("Worst Fitness")
+	double worstFitness;
+}
@@ -0,0 +1,56 @@
+package ea;
+
+import java.util.Arrays;
+
+import teamPursuit.Integrator;
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+import teamPursuit.WomensTeamPursuit;
+
+/***
+ * Searches pacing and transition strategies together with TeamPursuit.optimiseStrategies,
+ * a beam search over the race states at the segment boundaries, and prints the fastest
+ * strategy found. Every segment is ridden at one of the powers from MIN_POWER to MAX_POWER
+ * in steps of the given size. The search runs with an adaptive integrator, or with the
+ * reference 1 ms one if the tolerance is 0, and the strategy found is simulated again
+ * with the reference integrator.
+ *
+ * Usage: PacingOptimiser [beam width] [power step] [threads] [tolerance, 0 for the reference integrator]
+ */
+public class PacingOptimiser {
+
+	private static final int MIN_POWER = 250, MAX_POWER = 750;
+
+
+	public static void main(String[] args) throws Exception {
+		int beamWidth = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int step = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		double tolerance = args.length > 3 ? Double.parseDouble(args[3]) : 1e-6;
+		int powers[] = new int[(MAX_POWER - MIN_POWER) / step + 1];
+		for (int i = 0; i < powers.length; i++) {
+			powers[i] = MIN_POWER + i * step;
+		}
+		TeamPursuit reference = new WomensTeamPursuit();
+		TeamPursuit search = reference;
+		if (tolerance > 0) {
+			search = new WomensTeamPursuit();
+			search.setIntegrator(Integrator.adaptive(tolerance));
+		}
+		System.out.println("Integrator: " + search.getIntegrator() + "\t Beam width: " + beamWidth + "\t Powers: " + powers.length + "\t Threads: " + threads);
+
+		long begin = System.nanoTime();
+		SimulationResult best = search.optimiseStrategies(powers, beamWidth, threads);
+		System.out.println("Search time: " + (System.nanoTime() - begin) / 1000000 + "ms");
+		if (best == null) {
+			System.out.println("No strategy searched finishes the race");
+			return;
+		}
+		System.out.println("Pacing: " + Arrays.toString(best.getPacingStrategy()));
+		System.out.println("Transitions: " + Arrays.toString(best.getTransitionStrategy()));
+		System.out.println(best);
+		if (search != reference) {
+			System.out.println("With the reference integrator:\n" + reference.simulate(best.getTransitionStrategy(), best.getPacingStrategy()));
+		}
+	}
+}
@@ -1,10 +1,10 @@
 package ea;
 
-import java.util.Random;
-
 public class Parameters {
 
-	public static Random rnd = new Random(System.currentTimeMillis());
+	//every random number of a run comes from a tree of streams split from this seed, one
+	//stream per EA, island or worker, so a run can be repeated by setting it
+	public static long seed = System.currentTimeMillis();
 	
 	/**
 	 * used as a seed
@@ -23,5 +23,58 @@ public class Parameters {
 	
 	public static int maxIterations = 2000;
 	
+	//iterations between saw tooth steps, 0 for maxIterations / 125
+	public static int sawToothPeriod = 0;
+	
+	//the operators an iteration uses
+	public static Configuration.Selection selection = Configuration.Selection.ROULETTE;
+	public static Configuration.Crossover crossover = Configuration.Crossover.TWO_POINT;
+	public static Configuration.Mutation mutation = Configuration.Mutation.SCRAMBLE_CREEP;
+	
+	//children are simulated coarsely first, and exactly only if the coarse fitness is less than
+	//the worst fitness in the population plus the margin, or the coarse race failed after
+	//completing at least the given proportion. Off by default: with these settings about 1 in
+	//10 children that would have entered the population are screened out
+	public static boolean screenChildren = false;
+	public static double screeningMargin = 5.0;
+	public static double screeningProportion = 0.9;
+	
+	//a child good enough to enter the population is refined by local search with the given
+	//probability, 0 turns it off: up to localSearchMoves neighbours are tried, each moving one
+	//power by localSearchStep watts, that many watts from one segment to another, or flipping
+	//one transition, and the first that is better takes the child's place
+	public static double localSearchProbability = 0;
+	public static int localSearchMoves = 20;
+	public static int localSearchStep = 10;
+	
+	//number of simulation results remembered by genome, 0 turns the cache off
+	public static int cacheSize = 4096;
+	
+	//progress is written by a background thread, to the console or to a CSV file if one is named.
+	//It is flushed every interval, or sooner once flushEvery records are waiting
+	public static ProgressReporter.Verbosity progressVerbosity = ProgressReporter.Verbosity.ALL;
+	public static long progressIntervalMillis = 1000;
+	public static int progressFlushEvery = 256;
+	public static int progressBufferSize = 4096;
+	public static String progressCsv = null;
+	
+	//the whole state of the run is written to the checkpoint file every interval iterations,
+	//0 turns checkpoints off. EA --resume carries on from the last one
+	public static int checkpointInterval = 1000;
+	public static String checkpointFile = "ea.checkpoint";
+	
+	//island model: number of islands, each an EA on its own thread, how often they stop to
+	//send copies of their best to their neighbours, and which islands are neighbours
+	public static int islands = Runtime.getRuntime().availableProcessors();
+	public static int migrationInterval = 50;
+	public static IslandModel.Topology topology = IslandModel.Topology.RING;
+	
+	//asynchronous EA: number of workers, each breeding and evaluating children on its own
+	//thread and inserting them into one shared population
+	public static int workers = Runtime.getRuntime().availableProcessors();
+	
+	//threads used to evaluate the population and pairs of children, 1 evaluates on the main thread
+	public static int parallelism = Runtime.getRuntime().availableProcessors();
+	
 	
 }
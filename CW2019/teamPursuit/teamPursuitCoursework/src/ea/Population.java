@@ -0,0 +1,248 @@
+package ea;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import teamPursuit.TeamPursuit;
+
+/**
+ * The individuals of a steady state EA, indexed by fitness. Besides the list itself it
+ * keeps a min-heap and a max-heap of the list's slots and a roulette wheel, so the best
+ * and the worst are found in O(1), and adding an individual, replacing or removing the
+ * worst and roulette selection take O(log n). None of them depends on scanning the
+ * population.
+ *
+ * An individual's fitness must not change while it is in the population; mutate copies
+ * or children, never members.
+ */
+class Population {
+
+	private Individual individuals[] = new Individual[16];
+	private int size = 0;
+	private final FitnessHeap best = new FitnessHeap(1);
+	private final FitnessHeap worst = new FitnessHeap(-1);
+	private final RouletteWheel wheel = new RouletteWheel();
+
+
+	int size() {
+		return size;
+	}
+
+	Individual get(int slot) {
+		return individuals[slot];
+	}
+
+	Individual getBest() {
+		return size == 0 ? null : individuals[best.top()];
+	}
+
+	Individual getWorst() {
+		return size == 0 ? null : individuals[worst.top()];
+	}
+
+	void add(Individual individual) {
+		if (size == individuals.length) {
+			Individual grown[] = new Individual[size * 2];
+			System.arraycopy(individuals, 0, grown, 0, size);
+			individuals = grown;
+		}
+		double fitness = individual.getFitness();
+		individuals[size] = individual;
+		best.add(size, fitness);
+		worst.add(size, fitness);
+		wheel.add(fitness);
+		size++;
+	}
+
+	void addAll(List<Individual> individuals) {
+		for (Individual individual : individuals) {
+			add(individual);
+		}
+	}
+
+	// the child takes the worst individual's slot
+	void replaceWorst(Individual child) {
+		int slot = worst.top();
+		double fitness = child.getFitness();
+		individuals[slot] = child;
+		best.update(slot, fitness);
+		worst.update(slot, fitness);
+		wheel.set(slot, fitness);
+	}
+
+	// steady state replacement, the child takes the worst's slot only if it is better
+	boolean replaceWorstIfBetter(Individual child) {
+		if (child.getFitness() < getWorst().getFitness()) {
+			replaceWorst(child);
+			return true;
+		}
+		return false;
+	}
+
+	// the last individual moves into the worst one's slot
+	Individual removeWorst() {
+		int slot = worst.top();
+		Individual removed = individuals[slot];
+		int last = size - 1;
+		best.remove(slot);
+		worst.remove(slot);
+		wheel.removeLast();
+		if (slot != last) {
+			individuals[slot] = individuals[last];
+			best.move(last, slot);
+			worst.move(last, slot);
+			wheel.set(slot, individuals[slot].getFitness());
+		}
+		individuals[last] = null;
+		size--;
+		return removed;
+	}
+
+	// roulette wheel selection, with probability proportional to fitness
+	Individual select(SplittableRandom rnd) {
+		return individuals[wheel.spin(rnd)];
+	}
+
+	// the individuals in their slots and the heaps and wheel exactly as they are, so that
+	// ties and rounding come out the same once read back
+	void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int slot = 0; slot < size; slot++) {
+			individuals[slot].write(out);
+		}
+		best.write(out);
+		worst.write(out);
+		wheel.write(out);
+	}
+
+	// replaces the contents with a population written by write
+	void read(DataInput in, TeamPursuit teamPursuit) throws IOException {
+		size = in.readInt();
+		individuals = new Individual[Math.max(16, size)];
+		for (int slot = 0; slot < size; slot++) {
+			individuals[slot] = Individual.read(in, teamPursuit);
+		}
+		best.read(in);
+		worst.read(in);
+		wheel.read(in);
+	}
+
+	/**
+	 * A binary heap of population slots ordered by fitness times the sign, so 1 keeps the
+	 * lowest fitness on top and -1 the highest. Each slot's position in the heap is kept
+	 * too, so any slot can be updated or removed in O(log n).
+	 */
+	private static final class FitnessHeap {
+
+		private final int sign;
+		private double key[] = new double[16];
+		private int heap[] = new int[16];
+		private int position[] = new int[16];
+		private int size = 0;
+
+
+		FitnessHeap(int sign) {
+			this.sign = sign;
+		}
+
+		int top() {
+			return heap[0];
+		}
+
+		void add(int slot, double fitness) {
+			// slots are numbered from 0 with no gaps, so the new slot is the heap's size
+			if (size == heap.length) {
+				key = Arrays.copyOf(key, size * 2);
+				heap = Arrays.copyOf(heap, size * 2);
+				position = Arrays.copyOf(position, size * 2);
+			}
+			key[slot] = sign * fitness;
+			heap[size] = slot;
+			position[slot] = size;
+			size++;
+			up(size - 1);
+		}
+
+		void update(int slot, double fitness) {
+			key[slot] = sign * fitness;
+			down(up(position[slot]));
+		}
+
+		void remove(int slot) {
+			int at = position[slot];
+			size--;
+			if (at != size) {
+				heap[at] = heap[size];
+				position[heap[at]] = at;
+				down(up(at));
+			}
+		}
+
+		void write(DataOutput out) throws IOException {
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeDouble(key[i]);
+				out.writeInt(heap[i]);
+				out.writeInt(position[i]);
+			}
+		}
+
+		void read(DataInput in) throws IOException {
+			size = in.readInt();
+			int capacity = Math.max(16, size);
+			key = new double[capacity];
+			heap = new int[capacity];
+			position = new int[capacity];
+			for (int i = 0; i < size; i++) {
+				key[i] = in.readDouble();
+				heap[i] = in.readInt();
+				position[i] = in.readInt();
+			}
+		}
+
+		// renumbers a slot, for when the population moves an individual to another slot
+		void move(int from, int to) {
+			key[to] = key[from];
+			position[to] = position[from];
+			heap[position[to]] = to;
+		}
+
+		private int up(int at) {
+			int slot = heap[at];
+			while (at > 0) {
+				int parent = (at - 1) / 2;
+				if (key[heap[parent]] <= key[slot]) {
+					break;
+				}
+				heap[at] = heap[parent];
+				position[heap[at]] = at;
+				at = parent;
+			}
+			heap[at] = slot;
+			position[slot] = at;
+			return at;
+		}
+
+		private void down(int at) {
+			int slot = heap[at];
+			while (2 * at + 1 < size) {
+				int child = 2 * at + 1;
+				if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) {
+					child++;
+				}
+				if (key[slot] <= key[heap[child]]) {
+					break;
+				}
+				heap[at] = heap[child];
+				position[heap[at]] = at;
+				at = child;
+			}
+			heap[at] = slot;
+			position[slot] = at;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package ea;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logs the progress of a run without holding it up. The EA only writes a record into a
+ * ring buffer of primitive fields; a background thread wakes up at a fixed interval, or
+ * as soon as enough records are waiting, and writes them to the console or to a CSV
+ * file. If the writer falls so far behind that the buffer is full, new records are
+ * dropped and counted rather than making the EA wait.
+ *
+ * One thread records and the background thread writes, so head and tail are each only
+ * ever written by one of them.
+ */
+public class ProgressReporter {
+
+	public enum Verbosity {
+		/** Nothing until the run is over. */
+		QUIET,
+		/** On the console, the latest iteration each time the buffer is flushed. A CSV file still gets every record. */
+		PERIODIC,
+		/** Every iteration and every saw tooth step. */
+		ALL
+	}
+
+	private static final int ITERATION = 0, SHRINK = 1, REINITIALISE = 2;
+	private static final String [] KINDS = {"iteration", "shrink", "reinitialise"};
+
+	private final Verbosity verbosity;
+	private final long intervalNanos;
+	private final int flushEvery;
+	private final String csv;
+	private final int mask;
+
+	private final int kind[];
+	private final int iteration[];
+	private final double best[], bestER[], worst[], worstER[];
+	private final int populationSize[], count[], y[];
+	private final long elapsedMillis[];
+
+	private volatile long head = 0, tail = 0;
+	private volatile boolean closed = false;
+	private long dropped = 0;
+	private Thread writer;
+
+
+	public ProgressReporter(Verbosity verbosity, long intervalMillis, int flushEvery, int bufferSize, String csv) {
+		this.verbosity = verbosity;
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		this.flushEvery = Math.max(1, flushEvery);
+		this.csv = csv;
+		int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+		this.mask = capacity - 1;
+		this.kind = new int[capacity];
+		this.iteration = new int[capacity];
+		this.best = new double[capacity];
+		this.bestER = new double[capacity];
+		this.worst = new double[capacity];
+		this.worstER = new double[capacity];
+		this.populationSize = new int[capacity];
+		this.count = new int[capacity];
+		this.y = new int[capacity];
+		this.elapsedMillis = new long[capacity];
+	}
+
+	// a reporter for a run with the given settings
+	static ProgressReporter forConfiguration(Configuration configuration) {
+		return new ProgressReporter(configuration.progressVerbosity, configuration.progressIntervalMillis, configuration.progressFlushEvery,
+				configuration.progressBufferSize, configuration.progressCsv);
+	}
+
+	public void start() throws IOException {
+		final Writer out = csv == null ? null : new BufferedWriter(new FileWriter(csv));
+		if (out != null) {
+			out.write("iteration,event,best,bestER,worst,worstER,population,elapsedMillis\n");
+		}
+		writer = new Thread("progress reporter") {
+			public void run() {
+				try {
+					while (!closed) {
+						LockSupport.parkNanos(intervalNanos);
+						flush(out);
+					}
+					flush(out);
+					if (out != null) {
+						out.close();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	// does no I/O and never waits, the record is dropped if the buffer is full
+	public void iteration(int iteration, double best, double bestER, double worst, double worstER, int populationSize,
+			int count, int y, long elapsedMillis) {
+		record(ITERATION, iteration, best, bestER, worst, worstER, populationSize, count, y, elapsedMillis);
+	}
+
+	public void shrunk(int iteration, int populationSize, long elapsedMillis) {
+		record(SHRINK, iteration, Double.NaN, Double.NaN, Double.NaN, Double.NaN, populationSize, 0, 0, elapsedMillis);
+	}
+
+	public void reinitialised(int iteration, int populationSize, long elapsedMillis) {
+		record(REINITIALISE, iteration, Double.NaN, Double.NaN, Double.NaN, Double.NaN, populationSize, 0, 0, elapsedMillis);
+	}
+
+	// writes out everything recorded so far and stops the background thread
+	public void close() throws InterruptedException {
+		closed = true;
+		if (writer != null) {
+			LockSupport.unpark(writer);
+			writer.join();
+		}
+		if (dropped > 0) {
+			System.out.println("Progress records dropped: " + dropped);
+		}
+	}
+
+	private void record(int kind, int iteration, double best, double bestER, double worst, double worstER, int populationSize,
+			int count, int y, long elapsedMillis) {
+		if (verbosity == Verbosity.QUIET) {
+			return;
+		}
+		long h = head;
+		if (h - tail > mask) {
+			dropped++;
+			return;
+		}
+		int i = (int) (h & mask);
+		this.kind[i] = kind;
+		this.iteration[i] = iteration;
+		this.best[i] = best;
+		this.bestER[i] = bestER;
+		this.worst[i] = worst;
+		this.worstER[i] = worstER;
+		this.populationSize[i] = populationSize;
+		this.count[i] = count;
+		this.y[i] = y;
+		this.elapsedMillis[i] = elapsedMillis;
+		head = h + 1;
+		if (writer != null && (h + 1 - tail) % flushEvery == 0) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	private void flush(Writer out) throws IOException {
+		long end = head;
+		long t = tail, h = end;
+		if (t == h) {
+			return;
+		}
+		if (verbosity == Verbosity.PERIODIC && out == null) {
+			// only the latest iteration is shown
+			while (h > t && kind[(int) ((h - 1) & mask)] != ITERATION) {
+				h--;
+			}
+			t = Math.max(t, h - 1);
+		}
+		StringBuilder text = new StringBuilder();
+		for (long r = t; r < h; r++) {
+			int i = (int) (r & mask);
+			if (out != null) {
+				text.append(iteration[i]).append(',').append(KINDS[kind[i]]).append(',').append(best[i]).append(',').append(bestER[i])
+						.append(',').append(worst[i]).append(',').append(worstER[i]).append(',').append(populationSize[i])
+						.append(',').append(elapsedMillis[i]).append('\n');
+			} else if (kind[i] == SHRINK) {
+				text.append("Population: ").append(populationSize[i]).append('\n');
+			} else if (kind[i] == REINITIALISE) {
+				text.append("Population  Re-initialised\n");
+			} else {
+				text.append(iteration[i]).append("\t B:").append(best[i]).append(" ER: ").append(bestER[i])
+						.append("\t W:").append(worst[i]).append(" ER: ").append(worstER[i]).append('\n');
+				text.append("p:").append(populationSize[i]).append("\t c:").append(count[i]).append(" \t y:").append(y[i])
+						.append("\t Time Elipsed: ").append(elapsedMillis[i] / 1000).append("s\n");
+			}
+		}
+		tail = end;
+		if (out != null) {
+			out.write(text.toString());
+		} else {
+			System.out.print(text);
+		}
+	}
+}
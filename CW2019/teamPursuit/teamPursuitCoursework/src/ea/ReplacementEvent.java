@@ -0,0 +1,30 @@
+package ea;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the decision whether a child replaces the worst individual.
+ */
+@Name("ea.Replacement")
+@Label("Replacement")
+@Category({"Team Pursuit", "EA"})
+class ReplacementEvent extends Event {
+
+	@Label("Accepted")
+	boolean accepted;
+
+	@Label("Screened Out")
+	@Description("Rejected on its coarse fitness without an exact evaluation")
+	boolean screenedOut;
+
+	@Label("Child Fitness")
+	@Description("Exact fitness, or the coarse fitness if the child was screened out")
+	double childFitness;
+
+	@Label("Worst Fitness")
+	double worstFitness;
+}
@@ -0,0 +1,134 @@
+package ea;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Roulette wheel selection over weights that change one at a time, kept in a Fenwick
+ * tree so that changing, adding or removing a weight and spinning the wheel all take
+ * O(log n) rather than summing the whole population on every spin.
+ *
+ * Slots are numbered like the population list. Only the last slot can be removed, so a
+ * population that drops an individual from the middle moves its last one into the gap.
+ */
+final class RouletteWheel {
+
+	private double weights[];
+	// tree[i] holds the sum of the weights of slots i - lowestOneBit(i) to i - 1
+	private double tree[];
+	private int size = 0;
+
+
+	RouletteWheel() {
+		this(16);
+	}
+
+	RouletteWheel(int capacity) {
+		capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+		weights = new double[capacity];
+		tree = new double[capacity + 1];
+	}
+
+	int size() {
+		return size;
+	}
+
+	double get(int slot) {
+		return weights[slot];
+	}
+
+	void set(int slot, double weight) {
+		double change = weight - weights[slot];
+		weights[slot] = weight;
+		for (int i = slot + 1; i < tree.length; i += Integer.lowestOneBit(i)) {
+			tree[i] += change;
+		}
+	}
+
+	void add(double weight) {
+		if (size == weights.length) {
+			grow();
+		}
+		size++;
+		set(size - 1, weight);
+	}
+
+	void removeLast() {
+		set(size - 1, 0);
+		size--;
+	}
+
+	void clear() {
+		Arrays.fill(weights, 0);
+		Arrays.fill(tree, 0);
+		size = 0;
+	}
+
+	double total() {
+		double total = 0;
+		for (int i = size; i > 0; i -= Integer.lowestOneBit(i)) {
+			total += tree[i];
+		}
+		return total;
+	}
+
+	// the slot the wheel stops at for a point between 0 and the total: the first slot whose
+	// cumulative weight is greater than the point
+	int select(double point) {
+		int slot = 0;
+		for (int step = weights.length; step > 0; step >>= 1) {
+			int next = slot + step;
+			if (next < tree.length && tree[next] <= point) {
+				slot = next;
+				point -= tree[next];
+			}
+		}
+		return Math.min(slot, size - 1);
+	}
+
+	int spin(SplittableRandom rnd) {
+		return select(rnd.nextDouble() * total());
+	}
+
+	// the tree is written as it is rather than rebuilt, so the sums round the same way
+	void write(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeInt(weights.length);
+		for (double weight : weights) {
+			out.writeDouble(weight);
+		}
+		for (double sum : tree) {
+			out.writeDouble(sum);
+		}
+	}
+
+	void read(DataInput in) throws IOException {
+		size = in.readInt();
+		weights = new double[in.readInt()];
+		tree = new double[weights.length + 1];
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = in.readDouble();
+		}
+		for (int i = 0; i < tree.length; i++) {
+			tree[i] = in.readDouble();
+		}
+	}
+
+	// doubles the capacity and rebuilds the tree in O(n)
+	private void grow() {
+		double grown[] = new double[weights.length * 2];
+		System.arraycopy(weights, 0, grown, 0, size);
+		weights = grown;
+		tree = new double[weights.length + 1];
+		for (int i = 1; i < tree.length; i++) {
+			tree[i] += weights[i - 1];
+			int parent = i + Integer.lowestOneBit(i);
+			if (parent < tree.length) {
+				tree[parent] += tree[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package ea;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for the saw tooth diversity step removing the worst individual
+ * or re-initialising the population.
+ */
+@Name("ea.SawTooth")
+@Label("Saw Tooth")
+@Category({"Team Pursuit", "EA"})
+class SawToothEvent extends Event {
+
+	@Label("Action")
+	String action;
+
+	@Label("Population Size")
+	@Description("Population size after the step")
+	int populationSize;
+}
@@ -0,0 +1,48 @@
+package ea;
+
+import java.util.Arrays;
+
+import teamPursuit.Integrator;
+import teamPursuit.SimulationResult;
+import teamPursuit.TeamPursuit;
+import teamPursuit.WomensTeamPursuit;
+
+/***
+ * Finds the optimal transition strategy for a pacing strategy with
+ * TeamPursuit.optimiseTransitions, starting from the default transitions, and prints it
+ * with its finish time. The search is exact for the integrator it runs with: with the
+ * reference 1 ms integrator it takes minutes, with an adaptive one seconds, in which case
+ * the strategy found is simulated again with the reference integrator as well.
+ *
+ * Usage: TransitionOptimiser [tolerance, 0 for the reference integrator] [23 powers]
+ */
+public class TransitionOptimiser {
+
+	public static void main(String[] args) throws Exception {
+		double tolerance = args.length > 0 ? Double.parseDouble(args[0]) : 1e-6;
+		int pacing[] = Parameters.DEFAULT_WOMENS_PACING_STRATEGY.clone();
+		if (args.length > 1) {
+			for (int i = 0; i < pacing.length; i++) {
+				pacing[i] = Integer.parseInt(args[i + 1]);
+			}
+		}
+		TeamPursuit reference = new WomensTeamPursuit();
+		TeamPursuit search = reference;
+		if (tolerance > 0) {
+			search = new WomensTeamPursuit();
+			search.setIntegrator(Integrator.adaptive(tolerance));
+		}
+		System.out.println("Integrator: " + search.getIntegrator());
+		System.out.println("Pacing: " + Arrays.toString(pacing));
+
+		boolean start[] = Parameters.DEFAULT_WOMENS_TRANSITION_STRATEGY;
+		System.out.println("Default transitions:\n" + search.simulate(start, pacing));
+		long begin = System.nanoTime();
+		SimulationResult best = search.optimiseTransitions(start, pacing);
+		System.out.println("Search time: " + (System.nanoTime() - begin) / 1000000 + "ms");
+		System.out.println("Optimal transitions: " + Arrays.toString(best.getTransitionStrategy()) + "\n" + best);
+		if (search != reference) {
+			System.out.println("With the reference integrator:\n" + reference.simulate(best.getTransitionStrategy(), pacing));
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package ea;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * Tunes the EA's settings by racing, as F-Race does. A set of candidate configurations,
+ * the current Parameters and others sampled at random, is run on one seed after another,
+ * every candidate still in the race on the same seed and all of them at once on a pool of
+ * threads. After the first few seeds, a Friedman test on the ranks of the candidates'
+ * best fitness decides whether they differ at all, and if they do, every candidate whose
+ * rank sum is significantly worse than the best one's is dropped. The runs are spent on
+ * the candidates that are still in contention, and the race ends once only one is left,
+ * the seeds run out or the budget of runs is used up.
+ *
+ * It writes tuning.csv, the candidates ranked by how long they lasted and then by their
+ * mean best fitness, and best.properties, the winner, which EA --config reads.
+ *
+ * Usage: Tuner [candidates] [seeds] [budget of runs] [threads] [output directory]
+ */
+public class Tuner {
+
+	private final Configuration base;
+	private final int candidates, seeds, budget, threads;
+	private final File directory;
+	// seeds every candidate runs on before any can be dropped, and the significance level
+	private final int firstTest = 5;
+	private final double alpha = 0.05;
+
+
+	public Tuner(Configuration base, int candidates, int seeds, int budget, int threads, File directory) {
+		this.base = base;
+		this.candidates = candidates;
+		this.seeds = seeds;
+		this.budget = budget;
+		this.threads = threads;
+		this.directory = directory;
+	}
+
+
+	public static void main(String[] args) throws Exception {
+		int candidates = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int seeds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int budget = args.length > 2 ? Integer.parseInt(args[2]) : candidates * seeds / 2;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		File directory = new File(args.length > 4 ? args[4] : "tuning");
+		Tuner tuner = new Tuner(Configuration.fromParameters(), candidates, seeds, budget, threads, directory);
+		tuner.run();
+	}
+
+	public void run() throws Exception {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create " + directory);
+		}
+		SplittableRandom random = new SplittableRandom(base.seed);
+		List<Candidate> all = sample(random.split());
+		List<Candidate> alive = new ArrayList<Candidate>(all);
+		System.out.println("Candidates: " + all.size() + "\t Seeds: " + seeds + "\t Budget: " + budget + " runs\t Iterations: " + base.maxIterations);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			int runs = 0;
+			for (int instance = 0; instance < seeds && alive.size() > 1 && runs + alive.size() <= budget; instance++) {
+				race(pool, alive, random.nextLong());
+				runs += alive.size();
+				if (instance + 1 >= firstTest) {
+					eliminate(alive, instance + 1);
+				}
+				System.out.println("Seed " + (instance + 1) + "\t runs: " + runs + "\t candidates left: " + alive.size());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Collections.sort(all, new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				if (a.failed != b.failed) {
+					return a.failed ? 1 : -1;
+				}
+				if (a.results.size() != b.results.size()) {
+					return b.results.size() - a.results.size();
+				}
+				return Double.compare(a.meanFitness(), b.meanFitness());
+			}
+		});
+		writeTable(all);
+		if (all.get(0).failed) {
+			throw new Exception("every candidate failed, no best.properties written");
+		}
+		Writer out = new BufferedWriter(new FileWriter(new File(directory, "best.properties")));
+		try {
+			all.get(0).configuration.store(out, "candidate " + all.get(0).id + ", mean best fitness " + all.get(0).meanFitness() + " over "
+					+ all.get(0).results.size() + " seeds");
+		} finally {
+			out.close();
+		}
+	}
+
+	// the configuration in Parameters, then others with settings drawn at random
+	private List<Candidate> sample(SplittableRandom random) {
+		List<Candidate> sampled = new ArrayList<Candidate>();
+		sampled.add(new Candidate(0, base.copy()));
+		int period = Math.max(1, base.maxIterations / 125);
+		for (int id = 1; id < candidates; id++) {
+			Configuration configuration = base.copy();
+			configuration.popSize = random.nextInt(10, 61);
+			configuration.mutationProbability = random.nextInt(20, 101) / 100.0;
+			configuration.tournamentSize = random.nextInt(2, 7);
+			configuration.mutationRateMax = random.nextInt(1, 11);
+			configuration.sawToothPeriod = Math.max(1, random.nextInt(period / 2, 2 * period + 1));
+			configuration.selection = pick(Configuration.Selection.values(), random);
+			configuration.crossover = pick(Configuration.Crossover.values(), random);
+			configuration.mutation = pick(Configuration.Mutation.values(), random);
+			sampled.add(new Candidate(id, configuration));
+		}
+		return sampled;
+	}
+
+	private static <T> T pick(T [] values, SplittableRandom random) {
+		return values[random.nextInt(values.length)];
+	}
+
+	// runs every candidate still in the race on the seed. A candidate whose run fails is
+	// out of the race, and the others carry on
+	private void race(ExecutorService pool, List<Candidate> alive, long seed) throws Exception {
+		List<Future<Double>> running = new ArrayList<Future<Double>>();
+		for (Candidate candidate : alive) {
+			running.add(pool.submit(run(ExperimentRunner.isolated(candidate.configuration, seed))));
+		}
+		List<Candidate> failed = new ArrayList<Candidate>();
+		for (int i = 0; i < alive.size(); i++) {
+			try {
+				alive.get(i).results.add(running.get(i).get());
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+				System.out.println("Candidate " + alive.get(i).id + " failed and is dropped");
+				alive.get(i).failed = true;
+				failed.add(alive.get(i));
+			}
+		}
+		alive.removeAll(failed);
+	}
+
+	private static Callable<Double> run(final Configuration configuration) {
+		configuration.progressVerbosity = ProgressReporter.Verbosity.QUIET;
+		return new Callable<Double>() {
+			public Double call() {
+				EA ea = new EA(configuration);
+				ea.initialise();
+				return ea.evolve().getFitness();
+			}
+		};
+	}
+
+	// the Friedman test over the seeds run so far, then Conover's comparison of each
+	// candidate with the best, as in F-Race
+	private void eliminate(List<Candidate> alive, int blocks) {
+		int k = alive.size();
+		double rankSums[] = new double[k];
+		double squares = 0;
+		for (int b = 0; b < blocks; b++) {
+			double fitness[] = new double[k];
+			for (int j = 0; j < k; j++) {
+				fitness[j] = alive.get(j).results.get(b);
+			}
+			double ranks[] = ranks(fitness);
+			for (int j = 0; j < k; j++) {
+				rankSums[j] += ranks[j];
+				squares += ranks[j] * ranks[j];
+			}
+		}
+		double correction = blocks * k * (k + 1) * (k + 1) / 4.0;
+		if (squares - correction <= 0) {
+			return;
+		}
+		double statistic = 0;
+		int best = 0;
+		for (int j = 0; j < k; j++) {
+			statistic += Math.pow(rankSums[j] - blocks * (k + 1) / 2.0, 2);
+			if (rankSums[j] < rankSums[best]) {
+				best = j;
+			}
+		}
+		statistic *= (k - 1) / (squares - correction);
+		if (statistic <= chiSquaredQuantile(1 - alpha, k - 1)) {
+			return;
+		}
+		int freedom = (blocks - 1) * (k - 1);
+		double difference = studentTQuantile(1 - alpha / 2, freedom)
+				* Math.sqrt(2 * blocks * (1 - statistic / (blocks * (k - 1))) * (squares - correction) / freedom);
+		List<Candidate> dropped = new ArrayList<Candidate>();
+		for (int j = 0; j < k; j++) {
+			if (rankSums[j] - rankSums[best] > difference) {
+				dropped.add(alive.get(j));
+			}
+		}
+		alive.removeAll(dropped);
+	}
+
+	// ranks from 1 for the lowest fitness, ties sharing the mean of their ranks
+	private static double [] ranks(double [] values) {
+		Integer order[] = new Integer[values.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		final double sorted[] = values;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(sorted[a], sorted[b]);
+			}
+		});
+		double ranks[] = new double[values.length];
+		for (int i = 0; i < order.length; ) {
+			int j = i;
+			while (j + 1 < order.length && values[order[j + 1]] == values[order[i]]) {
+				j++;
+			}
+			for (int t = i; t <= j; t++) {
+				ranks[order[t]] = (i + j) / 2.0 + 1;
+			}
+			i = j + 1;
+		}
+		return ranks;
+	}
+
+	// exact for one degree of freedom, otherwise the Wilson-Hilferty approximation
+	private static double chiSquaredQuantile(double p, int freedom) {
+		if (freedom == 1) {
+			return Math.pow(normalQuantile((1 + p) / 2), 2);
+		}
+		double h = 2.0 / (9.0 * freedom);
+		return freedom * Math.pow(1 - h + normalQuantile(p) * Math.sqrt(h), 3);
+	}
+
+	// the Cornish-Fisher expansion about the normal quantile
+	private static double studentTQuantile(double p, int freedom) {
+		double z = normalQuantile(p), v = freedom;
+		double z3 = z * z * z, z5 = z3 * z * z, z7 = z5 * z * z;
+		return z + (z3 + z) / (4 * v) + (5 * z5 + 16 * z3 + 3 * z) / (96 * v * v)
+				+ (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * v * v * v);
+	}
+
+	// Acklam's rational approximation, accurate to about 1e-9
+	private static double normalQuantile(double p) {
+		final double a[] = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+		final double b[] = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01};
+		final double c[] = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+		final double d[] = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+		if (p < 0.02425) {
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		}
+		if (p > 1 - 0.02425) {
+			return -normalQuantile(1 - p);
+		}
+		double q = p - 0.5, r = q * q;
+		return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+				/ (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+	}
+
+	private void writeTable(List<Candidate> ranked) throws IOException {
+		Writer out = new BufferedWriter(new FileWriter(new File(directory, "tuning.csv")));
+		try {
+			String header = "rank,candidate,seeds,failed,meanFitness,popSize,mutationProbability,tournamentSize,mutationRateMax,sawToothPeriod,selection,crossover,mutation";
+			out.write(header + "\n");
+			System.out.println(header);
+			for (int r = 0; r < ranked.size(); r++) {
+				Candidate candidate = ranked.get(r);
+				Configuration c = candidate.configuration;
+				String line = (r + 1) + "," + candidate.id + "," + candidate.results.size() + "," + candidate.failed + "," + candidate.meanFitness() + "," + c.popSize + ","
+						+ c.mutationProbability + "," + c.tournamentSize + "," + c.mutationRateMax + "," + c.sawToothPeriod + "," + c.selection
+						+ "," + c.crossover + "," + c.mutation;
+				out.write(line + "\n");
+				System.out.println(line);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static final class Candidate {
+		final int id;
+		final Configuration configuration;
+		// best fitness on each seed, in the order of the seeds
+		final List<Double> results = new ArrayList<Double>();
+		boolean failed = false;
+
+		Candidate(int id, Configuration configuration) {
+			this.id = id;
+			this.configuration = configuration;
+		}
+
+		double meanFitness() {
+			double mean = 0;
+			for (double result : results) {
+				mean += result / results.size();
+			}
+			return mean;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package teamPursuit;
+
+/**
+ * Integrates a segment with adaptive Dormand-Prince 5(4) steps. The leader rides at a
+ * constant power, so its kinetic energy K obeys dK/dt = g(K) = drive - drag v^3 - friction v.
+ * The riders behind hold the leader's velocity, so their energy use over the segment
+ * follows from the integrals of v and v^3 together with the change in their velocity;
+ * only K, the distance and the integral of v^3 have to be integrated.
+ *
+ * The aim is to agree with the reference integrator rather than with the exact solution,
+ * so the artefacts of its steps of length dt are reproduced:
+ * - it takes Euler steps in K, which follow dK/dt = g - (dt/2) g'(K) g more closely than
+ *   dK/dt = g, so that is the equation integrated here
+ * - it rides v dt + (1/2) dv dt^2 in a step, taking the step's change in velocity dv for
+ *   the acceleration. That is the acceleration times dt / 1 s, so the second term is
+ *   (1/2) dv dt (dt / 1 s) where the trapezium rule has (1/2) dv dt. The sum of v dt is
+ *   short of the integral of v by (dt/2) times the change in v over the segment, so the
+ *   distance is short of it by (dt/2) (1 s - dt) times that change
+ * - a follower matches the leader's distance in a step, which with the leader's velocity v,
+ *   its own u and the same mistaken acceleration gives it 2v - u + dv dt. Its offset
+ *   u - v becomes -(u - v) - dv (1 s - dt), so it changes sign every step and loses the
+ *   leader's change in velocity less dt / 1 s of it. The offset picked up at the standing
+ *   start decides how fast a follower is going when they take the lead, so the standing
+ *   start is ridden with reference steps
+ * - the alternating velocity means a follower gains energy every other step, so one who
+ *   runs out ends a segment with either no energy or that step's gain
+ */
+final class AdaptiveIntegrator extends Integrator {
+
+	private static final double C2 = 1.0/5, C3 = 3.0/10, C4 = 4.0/5, C5 = 8.0/9;
+	private static final double A21 = 1.0/5;
+	private static final double A31 = 3.0/40, A32 = 9.0/40;
+	private static final double A41 = 44.0/45, A42 = -56.0/15, A43 = 32.0/9;
+	private static final double A51 = 19372.0/6561, A52 = -25360.0/2187, A53 = 64448.0/6561, A54 = -212.0/729;
+	private static final double A61 = 9017.0/3168, A62 = -355.0/33, A63 = 46732.0/5247, A64 = 49.0/176, A65 = -5103.0/18656;
+	private static final double B1 = 35.0/384, B3 = 500.0/1113, B4 = 125.0/192, B5 = -2187.0/6784, B6 = 11.0/84;
+	private static final double E1 = 71.0/57600, E3 = -71.0/16695, E4 = 71.0/1920, E5 = -17253.0/339200, E6 = 22.0/525, E7 = -1.0/40;
+
+	private static final int KINETIC_ENERGY = 0;
+	private static final int DISTANCE = 1;
+	private static final int CUBED_VELOCITY = 2;
+	private static final int DIMENSION = 3;
+	private static final int STANDING_START_STEPS = 200;
+	// the reference integrator takes a step's change in velocity over one second for its acceleration
+	private static final double ONE_SECOND = 1.0;
+
+	private final double tolerance;
+	private final double quantum;
+
+
+	AdaptiveIntegrator(double tolerance, double quantum) {
+		this.tolerance = tolerance;
+		this.quantum = quantum;
+	}
+
+	double ride(TeamPursuit event, RaceState state, Cyclist leader, int power, double distance) {
+		Cyclist [] team = event.team;
+		int l = leader.getIndex();
+		double time = 0.0;
+		double distanceRidden = 0.0;
+		long steps = 0;
+		if (state.velocity[l] == 0.0) {
+			while (steps < STANDING_START_STEPS && distanceRidden < distance) {
+				double dist = leader.setPace(state, power, this.quantum);
+				for (int j = 0; j < team.length; j++) {
+					if (state.position[j] > 1)
+						team[j].follow(state, dist, this.quantum);
+				}
+				distanceRidden += dist;
+				time += this.quantum;
+				steps++;
+			}
+			if (distanceRidden >= distance) {
+				state.integrationSteps += steps;
+				return time;
+			}
+		}
+		
+		Segment segment = new Segment(leader.getMass(), power * Cyclist.MECHANICAL_EFFICIENCY * (1 - (0.01 * state.fatigueLevel[l])),
+				leader.getCoefficientDragArea() * 0.5 * event.airDensity,
+				TeamPursuit.FRICTION_COEFFICIENT * leader.getMass() * TeamPursuit.GRAVITATIONAL_ACCELERATION, this.quantum);
+
+		double y[] = new double[DIMENSION];
+		double next[] = new double[DIMENSION];
+		double startVelocity = state.velocity[l];
+		y[KINETIC_ENERGY] = 0.5 * segment.mass * startVelocity * startVelocity;
+		y[DISTANCE] = distanceRidden;
+		double y0KineticEnergy = y[KINETIC_ENERGY];
+		// how far the reference integrator's distance falls behind the integral of v, per
+		// unit of the leader's change in velocity over the segment
+		double lag = 0.5 * this.quantum * (ONE_SECOND - this.quantum);
+
+		double elapsed = 0.0;
+		double h = 10 * this.quantum;
+		while (true) {
+			double error = segment.step(y, h, next, this.tolerance);
+			steps++;
+			if (error > 1.0 && h > this.quantum * 1e-3) {
+				h *= Math.max(0.2, 0.9 * Math.pow(error, -0.2));
+				continue;
+			}
+			double target = distance + lag * (segment.velocity(next[KINETIC_ENERGY]) - startVelocity);
+			if (next[DISTANCE] >= target) {
+				// the segment ends within this step; like the reference integrator, only finish
+				// at the end of a whole reference time step. The interpolated crossing can be out
+				// by more than the tolerance, so the reference steps either side of it are checked
+				double crossing = elapsed + h * crossing(y[DISTANCE], segment.velocity(y[KINETIC_ENERGY]), next[DISTANCE], segment.velocity(next[KINETIC_ENERGY]), h, target);
+				long finish = (long) Math.ceil(crossing / this.quantum);
+				while ((finish - 1) * this.quantum > elapsed && finished(segment, y, ((finish - 1) * this.quantum) - elapsed, next, distance, startVelocity, lag)) {
+					finish--;
+					steps++;
+				}
+				while (!finished(segment, y, (finish * this.quantum) - elapsed, next, distance, startVelocity, lag)) {
+					finish++;
+					steps++;
+				}
+				segment.step(y, (finish * this.quantum) - elapsed, next, this.tolerance);
+				steps++;
+				elapsed = finish * this.quantum;
+				break;
+			}
+			elapsed += h;
+			System.arraycopy(next, 0, y, 0, DIMENSION);
+			h *= Math.min(5.0, Math.max(0.2, 0.9 * Math.pow(Math.max(error, 1e-10), -0.2)));
+		}
+
+		double endVelocity = segment.velocity(next[KINETIC_ENERGY]);
+		boolean oddSteps = (Math.round(elapsed / this.quantum) % 2) == 1;
+		// each reference step the offset changes sign and loses the leader's change in velocity
+		double startChange = segment.velocityChange(y0KineticEnergy);
+		double endChange = segment.velocityChange(next[KINETIC_ENERGY]);
+		for (int j = 0; j < team.length; j++) {
+			if (state.position[j] > 1) {
+				double offset = state.velocity[j] - startVelocity + (0.5 * startChange);
+				double endOffset = (oddSteps ? -offset : offset) - (0.5 * endChange);
+				double followerVelocity = endVelocity + endOffset;
+				double followerDrag = team[j].getCoefficientDragArea() * TeamPursuit.DRAFTING_COEFFICIENTS[state.position[j] - 2] * 0.5 * event.airDensity;
+				double followerFriction = TeamPursuit.FRICTION_COEFFICIENT * team[j].getMass() * TeamPursuit.GRAVITATIONAL_ACCELERATION;
+				double efficiency = Cyclist.MECHANICAL_EFFICIENCY * (1 - (0.01 * state.fatigueLevel[j]));
+				// averaged over the steps, (v + offset)^3 and (v - offset)^3 give v^3 + 3 v offset^2
+				double cubed = next[CUBED_VELOCITY] + (3 * offset * offset * (next[DISTANCE] - distanceRidden));
+				double energy = ((followerDrag * cubed) + (followerFriction * (next[DISTANCE] - distanceRidden)) + (0.5 * team[j].getMass() * (followerVelocity - state.velocity[j]))) / efficiency;
+				// the lowest the energy went in the reference integrator is at a step where the follower was faster than the leader
+				double lowest = state.remainingEnergy[j] - energy - (endOffset < 0 ? team[j].getMass() * -endOffset / efficiency : 0.0);
+				if (lowest > 0.0) {
+					state.remainingEnergy[j] -= energy;
+				} else if (endOffset < 0) {
+					// ran out, and the last step was one that gained energy
+					double v = followerVelocity - endOffset;
+					double gain = ((team[j].getMass() * -endOffset) - (((followerDrag * v * v * v) + (followerFriction * v)) * this.quantum)) / efficiency;
+					state.remainingEnergy[j] = Math.max(0.0, gain);
+				} else {
+					state.remainingEnergy[j] = 0.0;
+				}
+				state.velocity[j] = followerVelocity;
+			}
+		}
+		useEnergy(state, l, power * elapsed);
+		state.velocity[l] = endVelocity;
+		state.integrationSteps += steps;
+		return time + elapsed;
+	}
+
+	private static void useEnergy(RaceState state, int rider, double energy) {
+		if (state.remainingEnergy[rider] > energy) {
+			state.remainingEnergy[rider] -= energy;
+		} else {
+			state.remainingEnergy[rider] = 0.0;
+		}
+	}
+
+	// whether the reference integrator would have ridden the distance after a step of length h from y
+	private boolean finished(Segment segment, double [] y, double h, double [] next, double distance, double startVelocity, double lag) {
+		segment.step(y, h, next, this.tolerance);
+		return next[DISTANCE] >= distance + (lag * (segment.velocity(next[KINETIC_ENERGY]) - startVelocity));
+	}
+
+	// fraction of the step at which the cubic Hermite interpolant of the distance reaches the target
+	private static double crossing(double x0, double v0, double x1, double v1, double h, double target) {
+		double low = 0.0;
+		double high = 1.0;
+		for (int i = 0; i < 60; i++) {
+			double s = 0.5 * (low + high);
+			double s2 = s * s;
+			double s3 = s2 * s;
+			double x = ((2 * s3 - 3 * s2 + 1) * x0) + ((s3 - 2 * s2 + s) * h * v0) + ((-2 * s3 + 3 * s2) * x1) + ((s3 - s2) * h * v1);
+			if (x < target)
+				low = s;
+			else
+				high = s;
+		}
+		return high;
+	}
+
+	public String toString() {
+		return "adaptive, tolerance " + this.tolerance;
+	}
+
+	private static final class Segment {
+
+		final double mass, drive, drag, friction, halfStep;
+		private final double k1[] = new double[DIMENSION], k2[] = new double[DIMENSION], k3[] = new double[DIMENSION],
+				k4[] = new double[DIMENSION], k5[] = new double[DIMENSION], k6[] = new double[DIMENSION],
+				k7[] = new double[DIMENSION], stage[] = new double[DIMENSION];
+
+		Segment(double mass, double drive, double drag, double friction, double referenceStep) {
+			this.mass = mass;
+			this.drive = drive;
+			this.drag = drag;
+			this.friction = friction;
+			this.halfStep = 0.5 * referenceStep;
+		}
+
+		double velocity(double kineticEnergy) {
+			if (kineticEnergy <= 0.0)
+				return 0.0;
+			return Math.sqrt(2 * kineticEnergy / this.mass);
+		}
+
+		// the leader's change in velocity over one reference step, g / (m v) dt, less dt / 1 s of it
+		double velocityChange(double kineticEnergy) {
+			double velocity = velocity(kineticEnergy);
+			if (velocity <= 0.0)
+				return 0.0;
+			double g = this.drive - (this.drag * velocity * velocity * velocity) - (this.friction * velocity);
+			return g / (this.mass * velocity) * (2 * this.halfStep) * (ONE_SECOND - (2 * this.halfStep));
+		}
+
+		void derivative(double [] y, double [] dy) {
+			double velocity = velocity(y[KINETIC_ENERGY]);
+			double cubed = velocity * velocity * velocity;
+			double g = this.drive - (this.drag * cubed) - (this.friction * velocity);
+			double dg = velocity > 0.0 ? -((3 * this.drag * velocity * velocity) + this.friction) / (this.mass * velocity) : 0.0;
+			dy[KINETIC_ENERGY] = g - (this.halfStep * dg * g);
+			dy[DISTANCE] = velocity;
+			dy[CUBED_VELOCITY] = cubed;
+		}
+
+		// takes one step of length h from y into next and returns the error estimate
+		// relative to the tolerance, so that values up to 1 are acceptable
+		double step(double [] y, double h, double [] next, double tolerance) {
+			derivative(y, k1);
+			for (int i = 0; i < DIMENSION; i++)
+				stage[i] = y[i] + h * (A21 * k1[i]);
+			derivative(stage, k2);
+			for (int i = 0; i < DIMENSION; i++)
+				stage[i] = y[i] + h * (A31 * k1[i] + A32 * k2[i]);
+			derivative(stage, k3);
+			for (int i = 0; i < DIMENSION; i++)
+				stage[i] = y[i] + h * (A41 * k1[i] + A42 * k2[i] + A43 * k3[i]);
+			derivative(stage, k4);
+			for (int i = 0; i < DIMENSION; i++)
+				stage[i] = y[i] + h * (A51 * k1[i] + A52 * k2[i] + A53 * k3[i] + A54 * k4[i]);
+			derivative(stage, k5);
+			for (int i = 0; i < DIMENSION; i++)
+				stage[i] = y[i] + h * (A61 * k1[i] + A62 * k2[i] + A63 * k3[i] + A64 * k4[i] + A65 * k5[i]);
+			derivative(stage, k6);
+			for (int i = 0; i < DIMENSION; i++)
+				next[i] = y[i] + h * (B1 * k1[i] + B3 * k3[i] + B4 * k4[i] + B5 * k5[i] + B6 * k6[i]);
+			derivative(next, k7);
+
+			double error = 0.0;
+			for (int i = 0; i < DIMENSION; i++) {
+				double estimate = h * (E1 * k1[i] + E3 * k3[i] + E4 * k4[i] + E5 * k5[i] + E6 * k6[i] + E7 * k7[i]);
+				double scale = tolerance * (Math.max(Math.abs(y[i]), Math.abs(next[i])) + (i == KINETIC_ENERGY ? this.mass : 1.0));
+				error = Math.max(error, Math.abs(estimate) / scale);
+			}
+			return error;
+		}
+	}
+}
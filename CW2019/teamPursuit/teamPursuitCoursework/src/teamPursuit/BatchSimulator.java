@@ -0,0 +1,215 @@
+package teamPursuit;
+
+/**
+ * Simulates many strategies for one event in lockstep. The decisions made at segment
+ * boundaries (transitions, riders dropping out, fatigue) use a RaceState per race, but
+ * the time steps within a segment run over flat arrays holding the leader and follower
+ * velocities and energies of every race that is riding the segment.
+ *
+ * The arithmetic is the same as Cyclist.setPace and Cyclist.follow, term for term, so
+ * every result is identical to the one TeamPursuit.simulate gives for that strategy
+ * with a fixed step integrator of the same time step.
+ */
+final class BatchSimulator {
+
+	private final TeamPursuit event;
+	private final FixedStepIntegrator integrator;
+	private final double timeStep;
+
+
+	BatchSimulator(TeamPursuit event, FixedStepIntegrator integrator) {
+		this.event = event;
+		this.integrator = integrator;
+		this.timeStep = integrator.getTimeStep();
+	}
+
+	SimulationResult [] simulate(boolean [][] transitionStrategies, int [][] pacingStrategies) {
+		int races = pacingStrategies.length;
+		int raceSegments = event.getRaceSegments();
+		int raceDistance = event.getRaceDistance();
+		Cyclist [] team = event.team;
+		int teamSize = team.length;
+		double airDensity = event.airDensity;
+
+		RaceState states[] = new RaceState[races];
+		RaceState checkpoints[][] = new RaceState[races][raceSegments];
+		double velocityProfiles[][] = event.getRecordVelocityProfile() ? new double[races][raceSegments] : null;
+		int segmentsSimulated[] = new int[races];
+		boolean stopped[] = new boolean[races];
+		for (int r = 0; r < races; r++) {
+			states[r] = new RaceState(teamSize);
+			for (int j = 0; j < teamSize; j++) {
+				team[j].reset(states[r]);
+			}
+		}
+
+		// one slot per race riding the current segment
+		int riding[] = new int[races];
+		int leaderIndex[] = new int[races];
+		double leaderVelocity[] = new double[races];
+		double leaderEnergy[] = new double[races];
+		double leaderDrive[] = new double[races];
+		double leaderDrag[] = new double[races];
+		double leaderFriction[] = new double[races];
+		double leaderMass[] = new double[races];
+		double leaderStepEnergy[] = new double[races];
+		double distanceRidden[] = new double[races];
+		double time[] = new double[races];
+		double stepDistance[] = new double[races];
+
+		// one slot per rider following in the current segment
+		int followers = races * (teamSize - 1);
+		int followerSlot[] = new int[followers];
+		int followerIndex[] = new int[followers];
+		double followerVelocity[] = new double[followers];
+		double followerEnergy[] = new double[followers];
+		double followerDrag[] = new double[followers];
+		double followerFriction[] = new double[followers];
+		double followerHalfMass[] = new double[followers];
+		double followerEfficiency[] = new double[followers];
+
+		double timeStepSquared = Math.pow(timeStep, 2);
+
+		for (int i = 0; i < raceSegments; i++) {
+			double distance = event.segmentDistance(i);
+
+			int count = 0;
+			int followerCount = 0;
+			for (int r = 0; r < races; r++) {
+				if (stopped[r])
+					continue;
+				RaceState state = states[r];
+				checkpoints[r][i] = new RaceState(state);
+				segmentsSimulated[r]++;
+
+				if (event.cyclistsRemaining(state) < TeamPursuit.MINIMUM_RIDERS) {
+					state.raceTime = Double.POSITIVE_INFINITY;
+					stopped[r] = true;
+					continue;
+				}
+				event.beforeSegment(state);
+				if (i >= 1 && transitionStrategies[r][i-1]) {
+					event.transition(state);
+					state.raceTime += TeamPursuit.TRANSITION_TIME;
+				}
+
+				Cyclist leader = event.leader(state);
+				int l = leader.getIndex();
+				int power = pacingStrategies[r][i];
+				double fatigueFactor = 1 - (0.01 * state.fatigueLevel[l]);
+				riding[count] = r;
+				leaderIndex[count] = l;
+				leaderVelocity[count] = state.velocity[l];
+				leaderEnergy[count] = state.remainingEnergy[l];
+				leaderDrive[count] = power * Cyclist.MECHANICAL_EFFICIENCY * fatigueFactor;
+				leaderDrag[count] = leader.getCoefficientDragArea() * 0.5 * airDensity;
+				leaderFriction[count] = TeamPursuit.FRICTION_COEFFICIENT * leader.getMass() * TeamPursuit.GRAVITATIONAL_ACCELERATION;
+				leaderMass[count] = leader.getMass();
+				leaderStepEnergy[count] = power * timeStep;
+				distanceRidden[count] = 0.0;
+				time[count] = 0.0;
+
+				for (int j = 0; j < teamSize; j++) {
+					if (state.position[j] > 1) {
+						double followerFatigue = 1 - (0.01 * state.fatigueLevel[j]);
+						followerSlot[followerCount] = count;
+						followerIndex[followerCount] = j;
+						followerVelocity[followerCount] = state.velocity[j];
+						followerEnergy[followerCount] = state.remainingEnergy[j];
+						followerDrag[followerCount] = team[j].getCoefficientDragArea() * TeamPursuit.DRAFTING_COEFFICIENTS[state.position[j] - 2] * 0.5 * airDensity;
+						followerFriction[followerCount] = TeamPursuit.FRICTION_COEFFICIENT * team[j].getMass() * TeamPursuit.GRAVITATIONAL_ACCELERATION;
+						followerHalfMass[followerCount] = 0.5 * team[j].getMass();
+						followerEfficiency[followerCount] = Cyclist.MECHANICAL_EFFICIENCY * followerFatigue;
+						followerCount++;
+					}
+				}
+				count++;
+			}
+
+			int stillRiding = count;
+			while (stillRiding > 0) {
+				for (int k = 0; k < count; k++) {
+					if (distanceRidden[k] >= distance)
+						continue;
+					double v = leaderVelocity[k];
+					double deltaKE = (leaderDrive[k] - (leaderDrag[k] * Math.pow(v, 3)) - (leaderFriction[k] * v)) * timeStep;
+					double newVelocity = Math.pow(((2 * deltaKE / leaderMass[k]) + Math.pow(v, 2)), 0.5);
+					double acceleration = newVelocity - v;
+					stepDistance[k] = (v * timeStep) + (0.5 * acceleration * timeStepSquared);
+					leaderVelocity[k] = newVelocity;
+					if (leaderEnergy[k] > leaderStepEnergy[k]) {
+						leaderEnergy[k] -= leaderStepEnergy[k];
+					} else {
+						leaderEnergy[k] = 0.0;
+					}
+				}
+
+				for (int f = 0; f < followerCount; f++) {
+					int k = followerSlot[f];
+					if (distanceRidden[k] >= distance)
+						continue;
+					double v = followerVelocity[f];
+					double acceleration = 2 * (stepDistance[k] - (v * timeStep)) / timeStepSquared;
+					double newVelocity = v + (acceleration * timeStep);
+					double deltaKE = followerHalfMass[f] * (newVelocity - v);
+					double power = ((followerDrag[f] * Math.pow(v, 3)) + (followerFriction[f] * v) + (deltaKE / timeStep)) / followerEfficiency[f];
+					followerVelocity[f] = newVelocity;
+					if (followerEnergy[f] > power * timeStep) {
+						followerEnergy[f] -= power * timeStep;
+					} else {
+						followerEnergy[f] = 0.0;
+					}
+				}
+
+				for (int k = 0; k < count; k++) {
+					if (distanceRidden[k] >= distance)
+						continue;
+					if (distanceRidden[k] + stepDistance[k] <= distance)
+						distanceRidden[k] += stepDistance[k];
+					else
+						distanceRidden[k] = distance;
+					time[k] += timeStep;
+					states[riding[k]].integrationSteps++;
+					if (distanceRidden[k] >= distance)
+						stillRiding--;
+				}
+			}
+
+			for (int f = 0; f < followerCount; f++) {
+				RaceState state = states[riding[followerSlot[f]]];
+				state.velocity[followerIndex[f]] = followerVelocity[f];
+				state.remainingEnergy[followerIndex[f]] = followerEnergy[f];
+			}
+			for (int k = 0; k < count; k++) {
+				int r = riding[k];
+				RaceState state = states[r];
+				state.velocity[leaderIndex[k]] = leaderVelocity[k];
+				state.remainingEnergy[leaderIndex[k]] = leaderEnergy[k];
+
+				team[leaderIndex[k]].increaseFatigue(state);
+				for (int j = 0; j < teamSize; j++) {
+					if (state.position[j] > 1)
+						team[j].recover(state);
+				}
+
+				if (event.cyclistsRemaining(state) >= TeamPursuit.MINIMUM_RIDERS) {
+					if (velocityProfiles != null)
+						velocityProfiles[r][i] = distance / time[k];
+					state.raceTime += time[k];
+					state.proportionCompleted += distance / raceDistance;
+				} else {
+					state.raceTime = Double.POSITIVE_INFINITY;
+				}
+			}
+		}
+
+		SimulationResult results[] = new SimulationResult[races];
+		for (int r = 0; r < races; r++) {
+			RaceState state = states[r];
+			results[r] = new SimulationResult(state.raceTime, state.proportionCompleted, state.remainingEnergy.clone(),
+					velocityProfiles != null ? velocityProfiles[r] : null,
+					transitionStrategies[r].clone(), pacingStrategies[r].clone(), checkpoints[r], segmentsSimulated[r], state.integrationSteps, integrator, false);
+		}
+		return results;
+	}
+}
@@ -1,10 +1,15 @@
 package teamPursuit;
 
+/**
+ * The physical parameters of a rider. Everything that changes during a race
+ * (velocity, energy, position and fatigue) is held in a RaceState, so one
+ * Cyclist can be used by several simulations at once.
+ */
 class Cyclist {
 	static final int MAX_POWER = 1200;
 	static final int MIN_POWER = 200;
 	private static final double DRAG_COEFFICIENT = 0.65;
-	private static final double MECHANICAL_EFFICIENCY = 0.977;
+	static final double MECHANICAL_EFFICIENCY = 0.977;
 	private static final double BIKE_MASS = 7.7;
 	
 	private double height;
@@ -13,11 +18,8 @@ class Cyclist {
 	private double meanMaximumPower;
 	private TeamPursuit event;
 	private double totalEnergy;
-	private double remainingEnergy;
-	private double currentVelocity;
 	private int startPosition;
-	private int position;
-	private int fatigueLevel = 0;
+	private int index;
 	
 	Cyclist(double height, double weight, double meanMaximumPower, TeamPursuit event, int startPosition) {
 		this.height = height;
@@ -25,47 +27,47 @@ class Cyclist {
 		this.meanMaximumPower = meanMaximumPower;
 		this.event = event;
 		this.startPosition = startPosition;
-		this.position = startPosition;
-		this.currentVelocity = 0.0;
+		this.index = startPosition - 1;
 		updateCDA();
 		updateTotalEnergy();
-		this.remainingEnergy = this.totalEnergy;
 	}
 	
-	double setPace(int power) {
-		double fatigueFactor = 1 - (0.01 * this.fatigueLevel);
+	double setPace(RaceState state, int power, double timeStep) {
+		double currentVelocity = state.velocity[this.index];
+		double fatigueFactor = 1 - (0.01 * state.fatigueLevel[this.index]);
 		
-		double deltaKE = ((power * MECHANICAL_EFFICIENCY * fatigueFactor) - (this.coefficientDragArea * 0.5 * event.airDensity * Math.pow(this.currentVelocity, 3)) - (TeamPursuit.FRICTION_COEFFICIENT * (this.weight + BIKE_MASS) * TeamPursuit.GRAVITATIONAL_ACCELERATION * this.currentVelocity)) * TeamPursuit.TIME_STEP;
-		double newVelocity = Math.pow(((2 * deltaKE / (this.weight + BIKE_MASS)) + Math.pow(this.currentVelocity, 2)), 0.5);
-		double acceleration = newVelocity - this.currentVelocity;
-		double distance = (this.currentVelocity * TeamPursuit.TIME_STEP) + (0.5 * acceleration * Math.pow(TeamPursuit.TIME_STEP, 2));
+		double deltaKE = ((power * MECHANICAL_EFFICIENCY * fatigueFactor) - (this.coefficientDragArea * 0.5 * event.airDensity * Math.pow(currentVelocity, 3)) - (TeamPursuit.FRICTION_COEFFICIENT * (this.weight + BIKE_MASS) * TeamPursuit.GRAVITATIONAL_ACCELERATION * currentVelocity)) * timeStep;
+		double newVelocity = Math.pow(((2 * deltaKE / (this.weight + BIKE_MASS)) + Math.pow(currentVelocity, 2)), 0.5);
+		double acceleration = newVelocity - currentVelocity;
+		double distance = (currentVelocity * timeStep) + (0.5 * acceleration * Math.pow(timeStep, 2));
 		
-		this.currentVelocity = newVelocity;
+		state.velocity[this.index] = newVelocity;
 		
-		if (this.remainingEnergy > power * TeamPursuit.TIME_STEP) {
-			this.remainingEnergy -= power * TeamPursuit.TIME_STEP;
+		if (state.remainingEnergy[this.index] > power * timeStep) {
+			state.remainingEnergy[this.index] -= power * timeStep;
 		} else {
-			this.remainingEnergy = 0.0;
+			state.remainingEnergy[this.index] = 0.0;
 		}
 		
 		return distance;
 	}
 	
-	void follow(double distance) {
-		double fatigueFactor = 1 - (0.01 * this.fatigueLevel);
+	void follow(RaceState state, double distance, double timeStep) {
+		double currentVelocity = state.velocity[this.index];
+		double fatigueFactor = 1 - (0.01 * state.fatigueLevel[this.index]);
 		
-		double acceleration = 2 * (distance - (this.currentVelocity * TeamPursuit.TIME_STEP)) / Math.pow(TeamPursuit.TIME_STEP, 2);
-		double newVelocity = this.currentVelocity + (acceleration * TeamPursuit.TIME_STEP);
+		double acceleration = 2 * (distance - (currentVelocity * timeStep)) / Math.pow(timeStep, 2);
+		double newVelocity = currentVelocity + (acceleration * timeStep);
 		double deltaKE = 0.5 * (this.weight + BIKE_MASS) * (newVelocity - currentVelocity);
-		double power = ((this.coefficientDragArea * TeamPursuit.DRAFTING_COEFFICIENTS[this.position - 2] * 0.5 * event.airDensity * Math.pow(this.currentVelocity, 3)) + (TeamPursuit.FRICTION_COEFFICIENT * (this.weight + BIKE_MASS) * TeamPursuit.GRAVITATIONAL_ACCELERATION * this.currentVelocity) + (deltaKE / TeamPursuit.TIME_STEP)) / (MECHANICAL_EFFICIENCY * fatigueFactor);
+		double power = ((this.coefficientDragArea * TeamPursuit.DRAFTING_COEFFICIENTS[state.position[this.index] - 2] * 0.5 * event.airDensity * Math.pow(currentVelocity, 3)) + (TeamPursuit.FRICTION_COEFFICIENT * (this.weight + BIKE_MASS) * TeamPursuit.GRAVITATIONAL_ACCELERATION * currentVelocity) + (deltaKE / timeStep)) / (MECHANICAL_EFFICIENCY * fatigueFactor);
 		
-		this.currentVelocity = newVelocity;
+		state.velocity[this.index] = newVelocity;
 		
 		
-		if (this.remainingEnergy > power * TeamPursuit.TIME_STEP) {
-			this.remainingEnergy -= power * TeamPursuit.TIME_STEP;
+		if (state.remainingEnergy[this.index] > power * timeStep) {
+			state.remainingEnergy[this.index] -= power * timeStep;
 		} else {
-			this.remainingEnergy = 0.0;
+			state.remainingEnergy[this.index] = 0.0;
 		}
 	}
 	
@@ -81,12 +83,17 @@ class Cyclist {
 		return this.meanMaximumPower;
 	}
 	
-	double getRemainingEnergy() {
-		return this.remainingEnergy;
+	int getIndex() {
+		return this.index;
 	}
 	
-	int getPosition() {
-		return this.position;
+	double getCoefficientDragArea() {
+		return this.coefficientDragArea;
+	}
+	
+	// rider and bike together
+	double getMass() {
+		return this.weight + BIKE_MASS;
 	}
 	
 	void setWeight(double weight) {
@@ -105,24 +112,37 @@ class Cyclist {
 		updateTotalEnergy();
 	}
 	
-	void setPosition(int position) {
-		this.position = position;
+	// the velocity at which the given power, without fatigue, only just balances drag and
+	// friction; Newton's method from above on this convex resistance curve never undershoots
+	double terminalVelocity(int power) {
+		double drag = this.coefficientDragArea * 0.5 * event.airDensity;
+		double friction = TeamPursuit.FRICTION_COEFFICIENT * (this.weight + BIKE_MASS) * TeamPursuit.GRAVITATIONAL_ACCELERATION;
+		double drive = power * MECHANICAL_EFFICIENCY;
+		double velocity = 100.0;
+		for (int i = 0; i < 50; i++) {
+			double excess = (drag * velocity * velocity * velocity) + (friction * velocity) - drive;
+			double step = excess / ((3 * drag * velocity * velocity) + friction);
+			if (step < 1e-12)
+				break;
+			velocity -= step;
+		}
+		return velocity;
 	}
 	
-	void increaseFatigue() {
-		this.fatigueLevel += 2;
+	void increaseFatigue(RaceState state) {
+		state.fatigueLevel[this.index] += 2;
 	}
 	
-	void recover() {
-		if (this.fatigueLevel > 0)
-			this.fatigueLevel--;
+	void recover(RaceState state) {
+		if (state.fatigueLevel[this.index] > 0)
+			state.fatigueLevel[this.index]--;
 	}
 	
-	void reset() {
-		this.remainingEnergy = this.totalEnergy;
-		this.position = this.startPosition;
-		this.fatigueLevel = 0;
-		this.currentVelocity = 0;
+	void reset(RaceState state) {
+		state.remainingEnergy[this.index] = this.totalEnergy;
+		state.position[this.index] = this.startPosition;
+		state.fatigueLevel[this.index] = 0;
+		state.velocity[this.index] = 0;
 	}
 	
 	private void updateCDA() {
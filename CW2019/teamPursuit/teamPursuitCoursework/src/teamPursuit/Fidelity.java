@@ -0,0 +1,19 @@
+package teamPursuit;
+
+/**
+ * How closely an event simulates its races, set with TeamPursuit.setFidelity.
+ */
+public enum Fidelity {
+
+	/** The event's integrator, by default the original 1 ms steps. */
+	EXACT,
+
+	/**
+	 * Fixed 10 ms steps, roughly ten times cheaper. Finish times can be out by a second
+	 * or more and a race that only just finishes at exact fidelity may not finish, so
+	 * coarse results are only good for screening strategies.
+	 */
+	COARSE;
+
+	static final Integrator COARSE_INTEGRATOR = new FixedStepIntegrator(0.01);
+}
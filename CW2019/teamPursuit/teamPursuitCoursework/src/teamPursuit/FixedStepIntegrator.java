@@ -0,0 +1,42 @@
+package teamPursuit;
+
+final class FixedStepIntegrator extends Integrator {
+	
+	private final double timeStep;
+	
+	
+	FixedStepIntegrator(double timeStep) {
+		this.timeStep = timeStep;
+	}
+	
+	double getTimeStep() {
+		return this.timeStep;
+	}
+	
+	double ride(TeamPursuit event, RaceState state, Cyclist leader, int power, double distance) {
+		Cyclist [] team = event.team;
+		double time = 0.0;
+		double distanceRidden = 0.0;
+		while (distanceRidden < distance) {
+			double dist = leader.setPace(state, power, this.timeStep);
+			
+			for (int j = 0; j < team.length; j++) {
+				if (state.position[j] > 1)
+					team[j].follow(state, dist, this.timeStep);
+			}
+			
+			if (distanceRidden + dist <= distance)
+				distanceRidden += dist;
+			else
+				distanceRidden = distance;
+		
+			time += this.timeStep;
+			state.integrationSteps++;
+		}
+		return time;
+	}
+	
+	public String toString() {
+		return "fixed step " + this.timeStep + " s";
+	}
+}
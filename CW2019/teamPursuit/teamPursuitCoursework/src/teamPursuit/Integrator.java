@@ -0,0 +1,42 @@
+package teamPursuit;
+
+/**
+ * Integrates the motion of the team over one segment, in which the leader rides at a
+ * constant power and the others follow. Set on an event with TeamPursuit.setIntegrator.
+ */
+public abstract class Integrator {
+	
+	/** The original simulator: fixed 1 ms steps. */
+	public static final Integrator REFERENCE = new FixedStepIntegrator(TeamPursuit.TIME_STEP);
+	
+	
+	Integrator() {
+	}
+	
+	/**
+	 * Fixed steps of the given length in seconds, using the same per step physics as the
+	 * reference integrator.
+	 */
+	public static Integrator fixedStep(double timeStep) throws Exception {
+		if (timeStep <= 0.0 || timeStep > 1.0)
+			throw new Exception("Time step must be in the range 0-1 seconds");
+		return new FixedStepIntegrator(timeStep);
+	}
+	
+	/**
+	 * Adaptive Dormand-Prince 5(4) steps, keeping the estimated relative error of each step
+	 * below the given tolerance. Segment times are rounded up to the reference time step,
+	 * as the reference integrator only finishes a segment at the end of a step.
+	 */
+	public static Integrator adaptive(double tolerance) throws Exception {
+		if (tolerance <= 0.0 || tolerance >= 1.0)
+			throw new Exception("Tolerance must be in the range 0-1");
+		return new AdaptiveIntegrator(tolerance, TeamPursuit.TIME_STEP);
+	}
+	
+	/**
+	 * Rides one segment from the given state, updating the riders' velocity and energy
+	 * and the number of integration steps, and returns the time taken in seconds.
+	 */
+	abstract double ride(TeamPursuit event, RaceState state, Cyclist leader, int power, double distance);
+}
@@ -17,7 +17,15 @@ public final class MensTeamPursuit extends TeamPursuit {
 		}
 	}
 	
-	public SimulationResult simulate(boolean [] transitionStrategy, int [] pacingStrategy) throws Exception {
+	public int getRaceSegments() {
+		return RACE_SEGMENTS;
+	}
+	
+	protected int getRaceDistance() {
+		return RACE_DISTANCE;
+	}
+	
+	protected void validateStrategies(boolean [] transitionStrategy, int [] pacingStrategy) throws Exception {
 		
 		if (transitionStrategy.length != MAXIMUM_TRANSITIONS)
 			throw new Exception("Transition strategy for the mens team pursuit must have exactly " + MAXIMUM_TRANSITIONS +" elements");
@@ -27,84 +35,22 @@ public final class MensTeamPursuit extends TeamPursuit {
 			if (pacingStrategy[i] > Cyclist.MAX_POWER || pacingStrategy[i] < Cyclist.MIN_POWER)
 				throw new Exception("All power elements of the pacing strategy must be in the range " + Cyclist.MIN_POWER + "-" + Cyclist.MAX_POWER + " Watts");
 		}
-		
-		for (int i = 0; i < this.team.length; i++) {
-			this.team[i].reset();
-		}
-		
-		double velocityProfile[] = new double[RACE_SEGMENTS];
-		double proportionCompleted = 0;
-		double raceTime = 0;
-		for (int i = 0; i < RACE_SEGMENTS; i++) {
-			double distance;
-			if (i == 0 || i == (RACE_SEGMENTS - 1))
-				distance = 187.5;
-			else
-				distance = 125.0;
-			if (cyclistsRemaining() >= 3) {
-				
-				if (cyclistsRemaining() == 3)
-					validateOrder();
-				
-				if (i >= 1 && transitionStrategy[i-1]) {
-					transition();
-					raceTime += TeamPursuit.TRANSITION_TIME;
-				}
-				Cyclist leader = leader();
-				double time = 0.0;
-				double distanceRidden = 0.0;
-				while (distanceRidden < distance) {
-					double dist = leader.setPace(pacingStrategy[i]);
-					
-					for (int j = 0; j < this.team.length; j++) {
-						if (this.team[j].getPosition() > 1)
-							this.team[j].follow(dist);
-					}
-					
-					if (distanceRidden + dist <= distance)
-						distanceRidden += dist;
-					else
-						distanceRidden = distance;
-				
-					time += TIME_STEP;
-				}
-				
-				leader.increaseFatigue();
-				for (int j = 0; j < this.team.length; j++) {
-					if (this.team[j].getPosition() > 1)
-						this.team[j].recover();
-				}
-				
-				if (cyclistsRemaining() >= 3) {
-					velocityProfile[i] = distance / time;
-					raceTime += time;
-					proportionCompleted += distance / RACE_DISTANCE;
-				} else {
-					raceTime = Double.POSITIVE_INFINITY;
-				}
-			} else {
-				raceTime = Double.POSITIVE_INFINITY;
-				break;
-			}
-		}
-		
-		double [] remainingEnergies = new double[this.team.length];
-		for (int i = 0; i < this.team.length; i++) {
-			remainingEnergies[i] = this.team[i].getRemainingEnergy();
-		}
-		
-		return new SimulationResult(raceTime, proportionCompleted, remainingEnergies, velocityProfile);
 	}
 	
-	private void validateOrder() {
+	protected void beforeSegment(RaceState state) {
+		if (cyclistsRemaining(state) == 3)
+			validateOrder(state);
+	}
+	
+	private void validateOrder(RaceState state) {
 		for (int i = 0; i < this.team.length; i++) {
-			if (this.team[i].getPosition() == 4) {
-				this.team[i].setPosition(3);
-				if (this.team[(i+1)%4].getPosition() == 0) {
-					this.team[(i+2)%4].setPosition(1);
-					this.team[(i+3)%4].setPosition(2);
-				} else if (this.team[(i+2)%4].getPosition() == 0) {
-					this.team[(i+3)%4].setPosition(2);
+			if (state.position[i] == 4) {
+				state.position[i] = 3;
+				if (state.position[(i+1)%4] == 0) {
+					state.position[(i+2)%4] = 1;
+					state.position[(i+3)%4] = 2;
+				} else if (state.position[(i+2)%4] == 0) {
+					state.position[(i+3)%4] = 2;
 				}
 			}
 		}
@@ -0,0 +1,243 @@
+package teamPursuit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches pacing and transition strategies together, a segment at a time, as a beam
+ * search over the states the race can be in at each segment boundary. Every state in
+ * the beam is ridden through the next segment at each of the given powers, with and
+ * without a transition before it, and the states that come out are thinned to the beam
+ * width before the segment after.
+ *
+ * States are put in buckets by the fatigue and remaining energy of the rider in each
+ * position and by how fast the team is going, energies and velocities rounded to a few
+ * bins, and only the fastest state in a bucket is kept. The bucket does not say which
+ * rider is in which position, as the riders of a team are alike unless they have been
+ * set otherwise. What is left is cut down to the beam width by Pareto fronts in race
+ * time and total energy remaining: the front of states no other state beats on both,
+ * then the front of the rest, and so on, the last front taken spread evenly along its
+ * length.
+ *
+ * The states of a segment are expanded in parallel but merged in order, so the plan
+ * found does not depend on the number of threads.
+ */
+final class PacingSearch {
+
+	// joules and metres per second
+	private static final double ENERGY_BIN = 5000.0;
+	private static final double VELOCITY_BIN = 1.0;
+
+	private final TeamPursuit event;
+	private final Integrator integrator;
+	private final int powers[];
+	private final int beamWidth;
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private final int raceSegments;
+
+
+	PacingSearch(TeamPursuit event, Integrator integrator, int [] powers, int beamWidth, int parallelism) {
+		this.event = event;
+		this.integrator = integrator;
+		this.powers = powers.clone();
+		this.beamWidth = beamWidth;
+		this.parallelism = parallelism;
+		this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		this.raceSegments = event.getRaceSegments();
+	}
+
+	// the simulation of the fastest plan found, or null if no state finishes
+	SimulationResult search() throws Exception {
+		try {
+			RaceState state = new RaceState(event.team.length);
+			event.startRace(state);
+			List<Node> beam = new ArrayList<Node>();
+			beam.add(new Node(state, null, 0, false));
+			for (int segment = 0; segment < raceSegments && !beam.isEmpty(); segment++) {
+				Node children[][] = new Node[beam.size()][];
+				expand(beam, 0, beam.size(), segment, children);
+				beam = thin(children, segment == raceSegments - 1);
+			}
+			if (beam.isEmpty()) {
+				return null;
+			}
+			Node best = beam.get(0);
+			for (Node node : beam) {
+				if (node.state.raceTime < best.state.raceTime) {
+					best = node;
+				}
+			}
+			boolean transitions[] = new boolean[raceSegments - 1];
+			int pacing[] = new int[raceSegments];
+			int segment = raceSegments - 1;
+			for (Node node = best; node.parent != null; node = node.parent) {
+				pacing[segment] = node.power;
+				if (segment >= 1) {
+					transitions[segment - 1] = node.transition;
+				}
+				segment--;
+			}
+			return event.simulate(transitions, pacing);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private void expand(List<Node> beam, int from, int to, int segment, Node [][] children) {
+		if (pool == null || to - from < 2) {
+			expandChunk(beam, from, to, segment, children);
+			return;
+		}
+		int chunkSize = Math.max(1, (to - from) / parallelism);
+		pool.invoke(new ExpandTask(beam, from, to, chunkSize, segment, children));
+	}
+
+	// every power, after a transition and without one, from each state in the chunk; the
+	// states in which too few riders finish the segment are dropped
+	private void expandChunk(List<Node> beam, int from, int to, int segment, Node [][] children) {
+		for (int i = from; i < to; i++) {
+			Node parent = beam.get(i);
+			List<Node> ridden = new ArrayList<Node>();
+			for (int t = 0; t < (segment == 0 ? 1 : 2); t++) {
+				boolean transition = t == 1;
+				for (int power : powers) {
+					RaceState state = new RaceState(parent.state);
+					if (event.rideSegment(state, segment, transition, power, integrator) < Double.POSITIVE_INFINITY) {
+						ridden.add(new Node(state, parent, power, transition));
+					}
+				}
+			}
+			children[i] = ridden.toArray(new Node[ridden.size()]);
+		}
+	}
+
+	// the fastest state in each bucket, then Pareto fronts in time and energy up to the
+	// width. After the last segment only the fastest state matters, so all are kept
+	private List<Node> thin(Node [][] children, boolean finished) {
+		List<Node> kept = new ArrayList<Node>();
+		if (finished) {
+			for (Node [] ridden : children) {
+				kept.addAll(Arrays.asList(ridden));
+			}
+			return kept;
+		}
+		// a bucket keeps its place in the order when its state is replaced
+		LinkedHashMap<String, Node> buckets = new LinkedHashMap<String, Node>();
+		for (Node [] ridden : children) {
+			for (Node node : ridden) {
+				String key = bucket(node.state);
+				Node other = buckets.get(key);
+				if (other == null || node.state.raceTime < other.state.raceTime) {
+					buckets.put(key, node);
+				}
+			}
+		}
+		kept.addAll(buckets.values());
+		if (kept.size() <= beamWidth) {
+			return kept;
+		}
+		Node sorted[] = kept.toArray(new Node[kept.size()]);
+		Arrays.sort(sorted, new Comparator<Node>() {
+			public int compare(Node a, Node b) {
+				if (a.state.raceTime != b.state.raceTime) {
+					return Double.compare(a.state.raceTime, b.state.raceTime);
+				}
+				return Double.compare(b.energy, a.energy);
+			}
+		});
+		List<Node> beam = new ArrayList<Node>();
+		List<Node> remaining = new ArrayList<Node>(Arrays.asList(sorted));
+		while (beam.size() < beamWidth) {
+			List<Node> front = new ArrayList<Node>();
+			List<Node> rest = new ArrayList<Node>();
+			double energy = Double.NEGATIVE_INFINITY;
+			for (Node node : remaining) {
+				if (node.energy > energy) {
+					front.add(node);
+					energy = node.energy;
+				} else {
+					rest.add(node);
+				}
+			}
+			int room = beamWidth - beam.size();
+			if (front.size() <= room) {
+				beam.addAll(front);
+			} else {
+				for (int k = 0; k < room; k++) {
+					beam.add(front.get((int) ((long) k * front.size() / room)));
+				}
+			}
+			remaining = rest;
+		}
+		return beam;
+	}
+
+	private String bucket(RaceState state) {
+		StringBuilder key = new StringBuilder();
+		double velocity = 0;
+		for (int position = 1; position <= event.team.length; position++) {
+			for (int i = 0; i < event.team.length; i++) {
+				if (state.position[i] == position) {
+					key.append(state.fatigueLevel[i]).append(':').append((long) (state.remainingEnergy[i] / ENERGY_BIN)).append(',');
+					velocity = Math.max(velocity, state.velocity[i]);
+				}
+			}
+		}
+		return key.append(Math.round(velocity / VELOCITY_BIN)).toString();
+	}
+
+	private static final class Node {
+		final RaceState state;
+		final Node parent;
+		// how the segment that led here was ridden
+		final int power;
+		final boolean transition;
+		final double energy;
+
+		Node(RaceState state, Node parent, int power, boolean transition) {
+			this.state = state;
+			this.parent = parent;
+			this.power = power;
+			this.transition = transition;
+			double energy = 0;
+			for (double e : state.remainingEnergy) {
+				energy += e;
+			}
+			this.energy = energy;
+		}
+	}
+
+	private final class ExpandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final List<Node> beam;
+		private final int from, to, chunkSize, segment;
+		private final Node children[][];
+
+		ExpandTask(List<Node> beam, int from, int to, int chunkSize, int segment, Node [][] children) {
+			this.beam = beam;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.segment = segment;
+			this.children = children;
+		}
+
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				expandChunk(beam, from, to, segment, children);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ExpandTask(beam, from, middle, chunkSize, segment, children),
+					new ExpandTask(beam, middle, to, chunkSize, segment, children));
+		}
+	}
+}
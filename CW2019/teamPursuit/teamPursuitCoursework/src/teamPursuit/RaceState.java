@@ -0,0 +1,41 @@
+package teamPursuit;
+
+/**
+ * Everything that changes while a race is simulated: the velocity, remaining energy,
+ * position and fatigue of every rider, plus the race time and proportion completed.
+ * Each simulation works on its own RaceState, and a copy taken at a segment boundary
+ * is enough to resume the race from that segment.
+ */
+final class RaceState {
+	
+	final double velocity[];
+	final double remainingEnergy[];
+	final int position[];
+	final int fatigueLevel[];
+	double raceTime;
+	double proportionCompleted;
+	long integrationSteps;
+	
+	
+	RaceState(int teamSize) {
+		this.velocity = new double[teamSize];
+		this.remainingEnergy = new double[teamSize];
+		this.position = new int[teamSize];
+		this.fatigueLevel = new int[teamSize];
+	}
+	
+	RaceState(RaceState other) {
+		this(other.velocity.length);
+		copyFrom(other);
+	}
+	
+	void copyFrom(RaceState other) {
+		System.arraycopy(other.velocity, 0, this.velocity, 0, this.velocity.length);
+		System.arraycopy(other.remainingEnergy, 0, this.remainingEnergy, 0, this.remainingEnergy.length);
+		System.arraycopy(other.position, 0, this.position, 0, this.position.length);
+		System.arraycopy(other.fatigueLevel, 0, this.fatigueLevel, 0, this.fatigueLevel.length);
+		this.raceTime = other.raceTime;
+		this.proportionCompleted = other.proportionCompleted;
+		this.integrationSteps = other.integrationSteps;
+	}
+}
@@ -1,5 +1,9 @@
 package teamPursuit;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class SimulationResult {
 	
 	double finishTime;
@@ -7,12 +11,122 @@ public class SimulationResult {
 	double energyRemaining[];
 	double velocityProfile[];
 	
+	// strategy that was simulated and the race state at the start of every segment
+	boolean transitionStrategy[];
+	int pacingStrategy[];
+	RaceState checkpoints[];
+	int checkpointsRecorded;
+	int segmentsSimulated;
+	long integrationSteps;
+	Integrator integrator;
+	boolean dominated;
+	// owned by a caller of simulateInto, which overwrites it in place
+	final boolean reusable;
+	
 	
-	SimulationResult(double finishTime, double proportionCompleted, double [] energyRemaining, double [] velocityProfile) {
+	SimulationResult(double finishTime, double proportionCompleted, double [] energyRemaining, double [] velocityProfile,
+			boolean [] transitionStrategy, int [] pacingStrategy, RaceState [] checkpoints, int segmentsSimulated,
+			long integrationSteps, Integrator integrator, boolean dominated) {
 		this.finishTime = finishTime;
 		this.energyRemaining = energyRemaining;
 		this.proportionCompleted = proportionCompleted;
 		this.velocityProfile = velocityProfile;
+		this.transitionStrategy = transitionStrategy;
+		this.pacingStrategy = pacingStrategy;
+		this.checkpoints = checkpoints;
+		this.segmentsSimulated = segmentsSimulated;
+		this.integrationSteps = integrationSteps;
+		this.integrator = integrator;
+		this.dominated = dominated;
+		this.reusable = false;
+		while (this.checkpointsRecorded < checkpoints.length && checkpoints[this.checkpointsRecorded] != null)
+			this.checkpointsRecorded++;
+	}
+	
+	// an empty result for simulateInto to fill, holding no race until then
+	private SimulationResult(int teamSize, int transitions, int raceSegments) {
+		this.energyRemaining = new double[teamSize];
+		this.transitionStrategy = new boolean[transitions];
+		this.pacingStrategy = new int[raceSegments];
+		this.checkpoints = new RaceState[raceSegments];
+		this.reusable = true;
+	}
+	
+	static SimulationResult createReusable(int teamSize, int transitions, int raceSegments) {
+		return new SimulationResult(teamSize, transitions, raceSegments);
+	}
+	
+	// the checkpoints are already in place, everything else is copied in
+	void refill(double finishTime, double proportionCompleted, double [] energyRemaining, double [] velocityProfile,
+			boolean [] transitionStrategy, int [] pacingStrategy, int checkpointsRecorded, int segmentsSimulated,
+			long integrationSteps, Integrator integrator, boolean dominated) {
+		this.finishTime = finishTime;
+		this.proportionCompleted = proportionCompleted;
+		System.arraycopy(energyRemaining, 0, this.energyRemaining, 0, this.energyRemaining.length);
+		this.velocityProfile = velocityProfile;
+		System.arraycopy(transitionStrategy, 0, this.transitionStrategy, 0, this.transitionStrategy.length);
+		System.arraycopy(pacingStrategy, 0, this.pacingStrategy, 0, this.pacingStrategy.length);
+		this.checkpointsRecorded = checkpointsRecorded;
+		this.segmentsSimulated = segmentsSimulated;
+		this.integrationSteps = integrationSteps;
+		this.integrator = integrator;
+		this.dominated = dominated;
+	}
+	
+	/**
+	 * Writes the result for read to restore, all but the race states at the start of each
+	 * segment. A result read back is resumed by simulating its race again from the start,
+	 * which gives exactly the same result as resuming from a checkpoint would.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeDouble(this.finishTime);
+		out.writeDouble(this.proportionCompleted);
+		out.writeInt(this.energyRemaining.length);
+		for (double energy : this.energyRemaining)
+			out.writeDouble(energy);
+		out.writeInt(this.velocityProfile == null ? -1 : this.velocityProfile.length);
+		if (this.velocityProfile != null) {
+			for (double velocity : this.velocityProfile)
+				out.writeDouble(velocity);
+		}
+		out.writeInt(this.transitionStrategy.length);
+		for (boolean transition : this.transitionStrategy)
+			out.writeBoolean(transition);
+		out.writeInt(this.pacingStrategy.length);
+		for (int power : this.pacingStrategy)
+			out.writeInt(power);
+		out.writeInt(this.segmentsSimulated);
+		out.writeLong(this.integrationSteps);
+		out.writeBoolean(this.integrator == Fidelity.COARSE_INTEGRATOR);
+		out.writeBoolean(this.dominated);
+	}
+	
+	/**
+	 * Reads a result written by write, simulated by the given event at either fidelity. The
+	 * event must have the settings the result was simulated with.
+	 */
+	public static SimulationResult read(DataInput in, TeamPursuit event) throws IOException {
+		double finishTime = in.readDouble();
+		double proportionCompleted = in.readDouble();
+		double energyRemaining[] = new double[in.readInt()];
+		for (int i = 0; i < energyRemaining.length; i++)
+			energyRemaining[i] = in.readDouble();
+		int velocities = in.readInt();
+		double velocityProfile[] = velocities < 0 ? null : new double[velocities];
+		for (int i = 0; i < velocities; i++)
+			velocityProfile[i] = in.readDouble();
+		boolean transitionStrategy[] = new boolean[in.readInt()];
+		for (int i = 0; i < transitionStrategy.length; i++)
+			transitionStrategy[i] = in.readBoolean();
+		int pacingStrategy[] = new int[in.readInt()];
+		for (int i = 0; i < pacingStrategy.length; i++)
+			pacingStrategy[i] = in.readInt();
+		int segmentsSimulated = in.readInt();
+		long integrationSteps = in.readLong();
+		Integrator integrator = in.readBoolean() ? Fidelity.COARSE_INTEGRATOR : event.getIntegrator();
+		boolean dominated = in.readBoolean();
+		return new SimulationResult(finishTime, proportionCompleted, energyRemaining, velocityProfile, transitionStrategy, pacingStrategy,
+				new RaceState[pacingStrategy.length], segmentsSimulated, integrationSteps, integrator, dominated);
 	}
 	
 	public double getFinishTime() {
@@ -31,9 +145,73 @@ public class SimulationResult {
 		return this.velocityProfile;
 	}
 	
+	/**
+	 * True if the simulation was given up because the race could not finish within the
+	 * bound it was given. The finish time is then a lower bound rather than the real time.
+	 */
+	public boolean isDominated() {
+		return this.dominated;
+	}
+	
+	/**
+	 * Number of segments that were actually simulated to produce this result; segments
+	 * replayed from a previous result are not counted.
+	 */
+	public int getSegmentsSimulated() {
+		return this.segmentsSimulated;
+	}
+	
+	/**
+	 * Number of integration steps taken over the simulated segments.
+	 */
+	public long getIntegrationSteps() {
+		return this.integrationSteps;
+	}
+	
+	/**
+	 * A copy of the transition strategy that was simulated.
+	 */
+	public boolean [] getTransitionStrategy() {
+		return this.transitionStrategy.clone();
+	}
+	
+	/**
+	 * A copy of the pacing strategy that was simulated.
+	 */
+	public int [] getPacingStrategy() {
+		return this.pacingStrategy.clone();
+	}
+	
+	/**
+	 * True if this is the result of simulating exactly the given strategy.
+	 */
+	public boolean isResultFor(boolean [] transitionStrategy, int [] pacingStrategy) {
+		if (transitionStrategy.length != this.transitionStrategy.length || pacingStrategy.length != this.pacingStrategy.length)
+			return false;
+		return firstDifference(transitionStrategy, pacingStrategy) == pacingStrategy.length;
+	}
+	
+	// index of the first segment that would be ridden differently under the given strategy
+	int firstDifference(boolean [] transitionStrategy, int [] pacingStrategy) {
+		for (int i = 0; i < pacingStrategy.length; i++) {
+			if (pacingStrategy[i] != this.pacingStrategy[i])
+				return i;
+			if (i >= 1 && transitionStrategy[i-1] != this.transitionStrategy[i-1])
+				return i;
+		}
+		return pacingStrategy.length;
+	}
+	
+	int checkpointsRecorded() {
+		return this.checkpointsRecorded;
+	}
+	
 	public String toString() {
 		String output = "Simulation Result\n-----------------\n";
-		if (this.finishTime < Double.POSITIVE_INFINITY) {
+		if (this.dominated) {
+			output = output + "Simulation stopped early, finish time at least: " + finishTime + " seconds\n" +
+					"Proportion of race completed: " + (this.proportionCompleted * 100) + "%\n";
+		} else if (this.finishTime < Double.POSITIVE_INFINITY) {
 			output = output + "Finish Time: " + finishTime + " seconds\n";
 			for (int i = 0; i < this.energyRemaining.length; i++) {
 				output = output + "Cyclist " + (i+1) + " Energy Remaining: " + energyRemaining[i] + " joules\n";
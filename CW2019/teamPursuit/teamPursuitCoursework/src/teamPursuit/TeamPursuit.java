@@ -8,6 +8,9 @@ public abstract class TeamPursuit {
 	static final double GRAVITATIONAL_ACCELERATION = 9.80665;
 	static final double TIME_STEP = 0.001;
 	protected static final double TRANSITION_TIME = 0.12;
+	protected static final int MINIMUM_RIDERS = 3;
+	// every power in a pacing strategy must be in this range
+	public static final int MINIMUM_POWER = Cyclist.MIN_POWER, MAXIMUM_POWER = Cyclist.MAX_POWER;
 	
 	// Environmental Attributes
 	protected double temperature = 20.0;
@@ -15,6 +18,27 @@ public abstract class TeamPursuit {
 	protected double relativeHumidity = 0.5;
 	double airDensity;
 	protected Cyclist [] team;
+	private volatile Integrator integrator = Integrator.REFERENCE;
+	private volatile Fidelity fidelity = Fidelity.EXACT;
+	private volatile boolean recordVelocityProfile = true;
+	
+	// simulate and resume keep the race itself in a per-thread Workspace, so one event can
+	// be shared by several threads as long as its settings are not changed meanwhile
+	private final ThreadLocal<Workspace> scratch = new ThreadLocal<Workspace>() {
+		protected Workspace initialValue() {
+			return new Workspace(team.length, getRaceSegments());
+		}
+	};
+	
+	private static final class Workspace {
+		final RaceState state;
+		final double terminalVelocities[];
+		
+		Workspace(int teamSize, int raceSegments) {
+			this.state = new RaceState(teamSize);
+			this.terminalVelocities = new double[raceSegments];
+		}
+	}
 	
 	
 	public void setTemperature(double temperature) throws Exception {
@@ -56,6 +80,50 @@ public abstract class TeamPursuit {
 		this.team[cyclistId].setMeanMaximumPower(meanMaximumPower);
 	}
 	
+	/**
+	 * Chooses how the riders' motion within a segment is integrated. The default is
+	 * Integrator.REFERENCE, the original 1 ms fixed step.
+	 */
+	public void setIntegrator(Integrator integrator) {
+		this.integrator = integrator;
+	}
+	
+	public Integrator getIntegrator() {
+		return this.integrator;
+	}
+	
+	/**
+	 * Chooses between exact races, ridden by the integrator set with setIntegrator, and
+	 * coarse ones for screening. Results of different fidelities are never resumed from
+	 * one another.
+	 */
+	public void setFidelity(Fidelity fidelity) {
+		this.fidelity = fidelity;
+	}
+	
+	public Fidelity getFidelity() {
+		return this.fidelity;
+	}
+	
+	/**
+	 * Chooses whether results include the velocity profile, on by default. Callers that
+	 * only look at the finish time and remaining energies can turn it off to save an
+	 * array per simulation; getVelocityProfile then returns null.
+	 */
+	public void setRecordVelocityProfile(boolean recordVelocityProfile) {
+		this.recordVelocityProfile = recordVelocityProfile;
+	}
+	
+	public boolean getRecordVelocityProfile() {
+		return this.recordVelocityProfile;
+	}
+	
+	private Integrator currentIntegrator() {
+		if (this.fidelity == Fidelity.COARSE)
+			return Fidelity.COARSE_INTEGRATOR;
+		return this.integrator;
+	}
+	
 	public double getTemperature() {
 		return this.temperature;
 	}
@@ -86,7 +154,293 @@ public abstract class TeamPursuit {
 		return this.team[cyclistId].getMeanMaximumPower();
 	}
 	
-	public abstract SimulationResult simulate(boolean[] transitionStrategy, int[] pacingStrategy) throws Exception;
+	public SimulationResult simulate(boolean[] transitionStrategy, int[] pacingStrategy) throws Exception {
+		return simulate(transitionStrategy, pacingStrategy, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Simulates a strategy, giving up as soon as the race time so far plus a lower bound
+	 * on the time needed for the remaining distance exceeds the given bound. A race that
+	 * is given up returns a partial result marked as dominated, whose finish time is that
+	 * lower bound.
+	 */
+	public SimulationResult simulate(boolean[] transitionStrategy, int[] pacingStrategy, double bound) throws Exception {
+		validateStrategies(transitionStrategy, pacingStrategy);
+		return race(transitionStrategy, pacingStrategy, null, 0, bound, currentIntegrator(), null);
+	}
+	
+	/**
+	 * Simulates a strategy into a result returned by an earlier call, overwriting it, so a
+	 * loop that simulates one strategy after another allocates nothing once it has warmed
+	 * up. As with resume, the segments before the first one that differs from the strategy
+	 * the result last held are not simulated again. Pass null, or a result that did not
+	 * come from simulateInto, to get a new reusable result.
+	 *
+	 * Use the returned result, not the one passed in, and only until it is passed back. It
+	 * must not be shared between threads or kept by anything else meanwhile.
+	 */
+	public SimulationResult simulateInto(boolean[] transitionStrategy, int[] pacingStrategy, SimulationResult reusable) throws Exception {
+		return simulateInto(transitionStrategy, pacingStrategy, Double.POSITIVE_INFINITY, reusable);
+	}
+	
+	public SimulationResult simulateInto(boolean[] transitionStrategy, int[] pacingStrategy, double bound, SimulationResult reusable) throws Exception {
+		validateStrategies(transitionStrategy, pacingStrategy);
+		Integrator integrator = currentIntegrator();
+		if (reusable == null || !reusable.reusable || reusable.transitionStrategy.length != transitionStrategy.length
+				|| reusable.pacingStrategy.length != pacingStrategy.length)
+			reusable = SimulationResult.createReusable(this.team.length, transitionStrategy.length, pacingStrategy.length);
+		
+		int firstSegment = 0;
+		if (reusable.integrator == integrator && (!this.recordVelocityProfile || reusable.velocityProfile != null)) {
+			firstSegment = reusable.firstDifference(transitionStrategy, pacingStrategy);
+			if (firstSegment == pacingStrategy.length && !reusable.dominated)
+				return reusable;
+			if (firstSegment >= reusable.checkpointsRecorded())
+				firstSegment = reusable.checkpointsRecorded() - 1;
+		}
+		return race(transitionStrategy, pacingStrategy, reusable, firstSegment, bound, integrator, reusable);
+	}
+	
+	/**
+	 * Simulates a strategy by replaying a previous result up to the first segment whose
+	 * transition or pacing decision differs, and only simulating the race from there on.
+	 * The previous result must have been produced by an event with the same settings.
+	 */
+	public SimulationResult resume(SimulationResult previous, boolean[] transitionStrategy, int[] pacingStrategy) throws Exception {
+		return resume(previous, transitionStrategy, pacingStrategy, Double.POSITIVE_INFINITY);
+	}
+	
+	public SimulationResult resume(SimulationResult previous, boolean[] transitionStrategy, int[] pacingStrategy, double bound) throws Exception {
+		validateStrategies(transitionStrategy, pacingStrategy);
+		Integrator integrator = currentIntegrator();
+		if (previous == null || previous.integrator != integrator || previous.pacingStrategy.length != pacingStrategy.length
+				|| (this.recordVelocityProfile && previous.velocityProfile == null))
+			return race(transitionStrategy, pacingStrategy, null, 0, bound, integrator, null);
+		
+		int firstSegment = previous.firstDifference(transitionStrategy, pacingStrategy);
+		if (firstSegment == pacingStrategy.length && !previous.dominated)
+			return previous;
+		// a result read back from a file has no checkpoints to resume from
+		if (previous.checkpointsRecorded() == 0)
+			return race(transitionStrategy, pacingStrategy, null, 0, bound, integrator, null);
+		if (firstSegment >= previous.checkpointsRecorded())
+			firstSegment = previous.checkpointsRecorded() - 1;
+		return race(transitionStrategy, pacingStrategy, previous, firstSegment, bound, integrator, null);
+	}
+	
+	/**
+	 * Simulates a batch of strategies together, returning the results in the same order.
+	 * Each result is identical to the one simulate would return for that strategy, but
+	 * with a fixed step integrator the races are advanced in lockstep over flat arrays
+	 * rather than one at a time.
+	 */
+	public SimulationResult[] simulateBatch(boolean[][] transitionStrategies, int[][] pacingStrategies) throws Exception {
+		if (transitionStrategies.length != pacingStrategies.length)
+			throw new Exception("Batch must have the same number of transition and pacing strategies");
+		for (int i = 0; i < pacingStrategies.length; i++) {
+			validateStrategies(transitionStrategies[i], pacingStrategies[i]);
+		}
+		Integrator integrator = currentIntegrator();
+		if (!(integrator instanceof FixedStepIntegrator)) {
+			SimulationResult results[] = new SimulationResult[pacingStrategies.length];
+			for (int i = 0; i < pacingStrategies.length; i++) {
+				results[i] = race(transitionStrategies[i], pacingStrategies[i], null, 0, Double.POSITIVE_INFINITY, integrator, null);
+			}
+			return results;
+		}
+		return new BatchSimulator(this, (FixedStepIntegrator) integrator).simulate(transitionStrategies, pacingStrategies);
+	}
+	
+	/**
+	 * Finds the transition strategy that gives the fastest finish for the pacing strategy,
+	 * by a depth first branch and bound search over the transitions. The given transition
+	 * strategy is simulated first, and the search only looks for a faster one. Returns the
+	 * simulation of the best strategy found, which is the given one if no strategy finishes
+	 * faster, or if none finishes at all.
+	 */
+	public SimulationResult optimiseTransitions(boolean[] transitionStrategy, int[] pacingStrategy) throws Exception {
+		validateStrategies(transitionStrategy, pacingStrategy);
+		boolean best[] = new TransitionSearch(this, currentIntegrator(), pacingStrategy).search(transitionStrategy);
+		return simulate(best, pacingStrategy);
+	}
+	
+	/**
+	 * Searches for a fast pacing and transition strategy together, choosing the power of
+	 * every segment from the given ones, by a beam search over the race states at the
+	 * segment boundaries that keeps at most beamWidth of them from one segment to the
+	 * next. The states are expanded on the given number of threads. Returns the simulation
+	 * of the fastest strategy found, or null if none of the strategies searched finishes.
+	 * The result is not guaranteed to be optimal, but gets closer as the width grows.
+	 */
+	public SimulationResult optimiseStrategies(int[] powers, int beamWidth, int parallelism) throws Exception {
+		if (powers.length == 0 || beamWidth < 1 || parallelism < 1)
+			throw new Exception("At least one power, a beam width and a thread are needed");
+		for (int power : powers) {
+			if (power > Cyclist.MAX_POWER || power < Cyclist.MIN_POWER)
+				throw new Exception("All powers must be in the range " + Cyclist.MIN_POWER + "-" + Cyclist.MAX_POWER + " Watts");
+		}
+		return new PacingSearch(this, currentIntegrator(), powers, beamWidth, parallelism).search();
+	}
+	
+	public abstract int getRaceSegments();
+	
+	protected abstract int getRaceDistance();
+	
+	protected abstract void validateStrategies(boolean[] transitionStrategy, int[] pacingStrategy) throws Exception;
+	
+	// called at the start of every segment that still has enough riders
+	protected void beforeSegment(RaceState state) {
+	}
+	
+	// simulates from firstSegment, replaying previous before that. The race goes into a new
+	// result, or when into is given into that one, in which case previous must be into too
+	private SimulationResult race(boolean[] transitionStrategy, int[] pacingStrategy, SimulationResult previous, int firstSegment, double bound, Integrator integrator, SimulationResult into) {
+		int raceSegments = getRaceSegments();
+		
+		Workspace workspace = this.scratch.get();
+		RaceState state = workspace.state;
+		RaceState checkpoints[];
+		double velocityProfile[] = null;
+		if (into == null) {
+			checkpoints = new RaceState[raceSegments];
+			if (this.recordVelocityProfile)
+				velocityProfile = new double[raceSegments];
+		} else {
+			checkpoints = into.checkpoints;
+			if (this.recordVelocityProfile) {
+				velocityProfile = into.velocityProfile != null ? into.velocityProfile : new double[raceSegments];
+				// segments this race does not complete keep a velocity of 0
+				for (int i = firstSegment; i < raceSegments; i++) {
+					velocityProfile[i] = 0;
+				}
+			}
+		}
+		if (firstSegment == 0) {
+			startRace(state);
+		} else {
+			state.copyFrom(previous.checkpoints[firstSegment]);
+			if (into == null) {
+				// a reusable result will overwrite its checkpoints, so they cannot be shared
+				for (int i = 0; i < firstSegment; i++) {
+					checkpoints[i] = previous.reusable ? new RaceState(previous.checkpoints[i]) : previous.checkpoints[i];
+				}
+				if (velocityProfile != null)
+					System.arraycopy(previous.velocityProfile, 0, velocityProfile, 0, firstSegment);
+			}
+		}
+		state.integrationSteps = 0;
+		
+		int segmentsSimulated = 0;
+		boolean dominated = false;
+		boolean terminalVelocitiesKnown = false;
+		for (int i = firstSegment; i < raceSegments; i++) {
+			if (checkpoints[i] == null)
+				checkpoints[i] = new RaceState(state);
+			else
+				checkpoints[i].copyFrom(state);
+			segmentsSimulated++;
+			
+			double distance = segmentDistance(i);
+			if (cyclistsRemaining(state) >= MINIMUM_RIDERS) {
+				
+				if (bound < Double.POSITIVE_INFINITY) {
+					if (!terminalVelocitiesKnown) {
+						terminalVelocities(pacingStrategy, workspace.terminalVelocities);
+						terminalVelocitiesKnown = true;
+					}
+					double lowerBound = state.raceTime + remainingTimeBound(state, i, workspace.terminalVelocities);
+					if (lowerBound > bound) {
+						state.raceTime = lowerBound;
+						dominated = true;
+						break;
+					}
+				}
+				
+				double time = rideSegment(state, i, i >= 1 && transitionStrategy[i-1], pacingStrategy[i], integrator);
+				if (velocityProfile != null && time < Double.POSITIVE_INFINITY)
+					velocityProfile[i] = distance / time;
+			} else {
+				state.raceTime = Double.POSITIVE_INFINITY;
+				break;
+			}
+		}
+		
+		if (into == null)
+			return new SimulationResult(state.raceTime, state.proportionCompleted, state.remainingEnergy.clone(), velocityProfile,
+					transitionStrategy.clone(), pacingStrategy.clone(), checkpoints, segmentsSimulated, state.integrationSteps, integrator, dominated);
+		into.refill(state.raceTime, state.proportionCompleted, state.remainingEnergy, velocityProfile, transitionStrategy, pacingStrategy,
+				firstSegment + segmentsSimulated, segmentsSimulated, state.integrationSteps, integrator, dominated);
+		return into;
+	}
+	
+	// the riders at rest in their starting order
+	void startRace(RaceState state) {
+		for (int i = 0; i < this.team.length; i++) {
+			this.team[i].reset(state);
+		}
+		state.raceTime = 0;
+		state.proportionCompleted = 0;
+	}
+	
+	// rides one segment from a state that still has enough riders, changing the leader first
+	// if told to, and returns the time taken, or infinity if too few riders finish it
+	double rideSegment(RaceState state, int segment, boolean transition, int power, Integrator integrator) {
+		beforeSegment(state);
+		
+		if (transition) {
+			transition(state);
+			state.raceTime += TeamPursuit.TRANSITION_TIME;
+		}
+		double distance = segmentDistance(segment);
+		Cyclist leader = leader(state);
+		double time = integrator.ride(this, state, leader, power, distance);
+		
+		leader.increaseFatigue(state);
+		for (int j = 0; j < this.team.length; j++) {
+			if (state.position[j] > 1)
+				this.team[j].recover(state);
+		}
+		
+		if (cyclistsRemaining(state) >= MINIMUM_RIDERS) {
+			state.raceTime += time;
+			state.proportionCompleted += distance / getRaceDistance();
+			return time;
+		}
+		state.raceTime = Double.POSITIVE_INFINITY;
+		return Double.POSITIVE_INFINITY;
+	}
+	
+	double segmentDistance(int segment) {
+		if (segment == 0 || segment == (getRaceSegments() - 1))
+			return 187.5;
+		else
+			return 125.0;
+	}
+	
+	// the fastest any rider could sustain at each segment's power, ignoring fatigue
+	void terminalVelocities(int[] pacingStrategy, double[] terminalVelocities) {
+		for (int i = 0; i < pacingStrategy.length; i++) {
+			terminalVelocities[i] = 0;
+			for (int j = 0; j < this.team.length; j++) {
+				terminalVelocities[i] = Math.max(terminalVelocities[i], this.team[j].terminalVelocity(pacingStrategy[i]));
+			}
+		}
+	}
+	
+	// a segment cannot be ridden faster than the quickest rider is already going, or than
+	// the terminal velocity of the hardest effort from now up to and including that segment
+	double remainingTimeBound(RaceState state, int segment, double[] terminalVelocities) {
+		double velocityCap = 0;
+		for (int i = 0; i < this.team.length; i++) {
+			velocityCap = Math.max(velocityCap, state.velocity[i]);
+		}
+		double time = 0;
+		for (int i = segment; i < terminalVelocities.length; i++) {
+			velocityCap = Math.max(velocityCap, terminalVelocities[i]);
+			time += segmentDistance(i) / velocityCap;
+		}
+		return time;
+	}
 	
 	protected void updateAirDensity() {
 		double ppWaterVapour = 100 * this.relativeHumidity * (6.1078 * Math.pow(10, (((7.5 * (this.temperature + 273.15)) - 2048.625))/(this.temperature + 273.15 - 35.85)));
@@ -94,32 +448,32 @@ public abstract class TeamPursuit {
 		this.airDensity = (ppDryAir/(287.058 * (this.temperature + 273.15))) + (ppWaterVapour/(461.495 * (this.temperature + 273.15)));
 	}
 	
-	protected int cyclistsRemaining() {
+	protected int cyclistsRemaining(RaceState state) {
 		int cyclistsRemaining = 0;
 		for (int i = 0; i < this.team.length; i++) {
-			if (this.team[i].getRemainingEnergy() > 0.0)
+			if (state.remainingEnergy[i] > 0.0)
 				cyclistsRemaining++;
 			else
-				this.team[i].setPosition(0);
+				state.position[i] = 0;
 		}
 		return cyclistsRemaining;
 	}
 	
-	protected Cyclist leader() {
+	protected Cyclist leader(RaceState state) {
 		for (int i = 0; i < this.team.length; i++) {
-			if (this.team[i].getPosition() == 1)
+			if (state.position[i] == 1)
 				return this.team[i];
 		}
 		return null;
 	}
 	
-	protected void transition() {
+	protected void transition(RaceState state) {
 		for (int i = 0; i < this.team.length; i++) {
-			if(this.team[i].getPosition() > 0) {
-				if (this.team[i].getPosition() == 1)
-					this.team[i].setPosition(cyclistsRemaining());
+			if(state.position[i] > 0) {
+				if (state.position[i] == 1)
+					state.position[i] = cyclistsRemaining(state);
 				else
-					this.team[i].setPosition(this.team[i].getPosition() - 1);
+					state.position[i]--;
 			}
 		}
 	}
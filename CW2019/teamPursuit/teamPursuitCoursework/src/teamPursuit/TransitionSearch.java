@@ -0,0 +1,95 @@
+package teamPursuit;
+
+/**
+ * Finds the fastest transition strategy for a fixed pacing strategy by branch and bound.
+ * The race is simulated one segment at a time, depth first, trying both decisions at
+ * every segment boundary from the state the segment before left, so each state along
+ * the current branch is simulated once whichever way the later decisions go.
+ *
+ * A branch is dropped once its race time so far plus the lower bound on the time for
+ * the rest of the race is no better than the fastest finish found yet, or once too few
+ * riders are left. The bound is the one simulate uses to give up on a race, which leaves
+ * out the transitions still to come, so no faster strategy is ever dropped and the best
+ * one found is optimal.
+ */
+final class TransitionSearch {
+
+	private final TeamPursuit event;
+	private final Integrator integrator;
+	private final int pacingStrategy[];
+	private final int raceSegments;
+	private final double terminalVelocities[];
+	// the state at the start of each segment along the current branch
+	private final RaceState states[];
+	private final boolean transitions[];
+	// tried first at each boundary, the best strategy found so far
+	private final boolean best[];
+	private double bestTime;
+
+
+	TransitionSearch(TeamPursuit event, Integrator integrator, int [] pacingStrategy) {
+		this.event = event;
+		this.integrator = integrator;
+		this.pacingStrategy = pacingStrategy;
+		this.raceSegments = event.getRaceSegments();
+		this.terminalVelocities = new double[raceSegments];
+		event.terminalVelocities(pacingStrategy, terminalVelocities);
+		this.states = new RaceState[raceSegments + 1];
+		for (int i = 0; i <= raceSegments; i++) {
+			states[i] = new RaceState(event.team.length);
+		}
+		this.transitions = new boolean[raceSegments - 1];
+		this.best = new boolean[raceSegments - 1];
+	}
+
+	boolean [] search(boolean [] incumbent) {
+		System.arraycopy(incumbent, 0, best, 0, best.length);
+		System.arraycopy(incumbent, 0, transitions, 0, transitions.length);
+		event.startRace(states[0]);
+		// there is no transition before the first segment
+		states[1].copyFrom(states[0]);
+		if (event.rideSegment(states[1], 0, false, pacingStrategy[0], integrator) == Double.POSITIVE_INFINITY) {
+			return best.clone();
+		}
+		// the incumbent's own finish bounds the search from the start
+		bestTime = ride(1);
+		branch(1);
+		return best.clone();
+	}
+
+	// the finish time of the current transitions from the segment on, without branching
+	private double ride(int segment) {
+		RaceState state = states[raceSegments];
+		state.copyFrom(states[segment]);
+		for (int i = segment; i < raceSegments && state.raceTime < Double.POSITIVE_INFINITY; i++) {
+			event.rideSegment(state, i, transitions[i - 1], pacingStrategy[i], integrator);
+		}
+		return state.raceTime;
+	}
+
+	// tries both decisions before the segment, the best strategy's first
+	private void branch(int segment) {
+		if (segment == raceSegments) {
+			if (states[segment].raceTime < bestTime) {
+				bestTime = states[segment].raceTime;
+				System.arraycopy(transitions, 0, best, 0, best.length);
+			}
+			return;
+		}
+		boolean first = best[segment - 1];
+		for (int k = 0; k < 2; k++) {
+			boolean transition = k == 0 ? first : !first;
+			RaceState state = states[segment + 1];
+			state.copyFrom(states[segment]);
+			transitions[segment - 1] = transition;
+			if (event.rideSegment(state, segment, transition, pacingStrategy[segment], integrator) == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			if (segment + 1 < raceSegments
+					&& state.raceTime + event.remainingTimeBound(state, segment + 1, terminalVelocities) >= bestTime) {
+				continue;
+			}
+			branch(segment + 1);
+		}
+	}
+}
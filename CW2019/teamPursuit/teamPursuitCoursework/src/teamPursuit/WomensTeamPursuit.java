@@ -18,7 +18,15 @@ public final class WomensTeamPursuit extends TeamPursuit {
 		}
 	}
 	
-	public SimulationResult simulate(boolean [] transitionStrategy, int [] pacingStrategy) throws Exception {
+	public int getRaceSegments() {
+		return RACE_SEGMENTS;
+	}
+	
+	protected int getRaceDistance() {
+		return RACE_DISTANCE;
+	}
+	
+	protected void validateStrategies(boolean [] transitionStrategy, int [] pacingStrategy) throws Exception {
 		
 		if (transitionStrategy.length != MAXIMUM_TRANSITIONS)
 			throw new Exception("Transition strategy for the womens team pursuit must have exactly " + MAXIMUM_TRANSITIONS +" elements");
@@ -28,69 +36,5 @@ public final class WomensTeamPursuit extends TeamPursuit {
 			if (pacingStrategy[i] > Cyclist.MAX_POWER || pacingStrategy[i] < Cyclist.MIN_POWER)
 				throw new Exception("All power elements of the pacing strategy must be in the range " + Cyclist.MIN_POWER + "-" + Cyclist.MAX_POWER + " Watts");
 		}
-		
-		for (int i = 0; i < this.team.length; i++) {
-			this.team[i].reset();
-		}
-		
-		double velocityProfile[] = new double[RACE_SEGMENTS];
-		double proportionCompleted = 0;
-		double raceTime = 0;
-		for (int i = 0; i < RACE_SEGMENTS; i++) {
-			double distance;
-			if (i == 0 || i == (RACE_SEGMENTS - 1))
-				distance = 187.5;
-			else
-				distance = 125.0;
-			if (cyclistsRemaining() == 3) {
-				
-				if (i >= 1 && transitionStrategy[i-1]) {
-					transition();
-					raceTime += TeamPursuit.TRANSITION_TIME;
-				}
-				Cyclist leader = leader();
-				double time = 0.0;
-				double distanceRidden = 0.0;
-				while (distanceRidden < distance) {
-					double dist = leader.setPace(pacingStrategy[i]);
-					
-					for (int j = 0; j < this.team.length; j++) {
-						if (this.team[j].getPosition() > 1)
-							this.team[j].follow(dist);
-					}
-					
-					if (distanceRidden + dist <= distance)
-						distanceRidden += dist;
-					else
-						distanceRidden = distance;
-				
-					time += TIME_STEP;
-				}
-				
-				leader.increaseFatigue();
-				for (int j = 0; j < this.team.length; j++) {
-					if (this.team[j].getPosition() > 1)
-						this.team[j].recover();
-				}
-				
-				if (cyclistsRemaining() >= 3) {
-					velocityProfile[i] = distance / time;
-					raceTime += time;
-					proportionCompleted += distance / RACE_DISTANCE;
-				} else {
-					raceTime = Double.POSITIVE_INFINITY;
-				}
-			} else {
-				raceTime = Double.POSITIVE_INFINITY;
-				break;
-			}
-		}
-				
-		double [] remainingEnergies = new double[this.team.length];
-		for (int i = 0; i < this.team.length; i++) {
-			remainingEnergies[i] = this.team[i].getRemainingEnergy();
-		}
-		
-		return new SimulationResult(raceTime, proportionCompleted, remainingEnergies, velocityProfile);
 	}
-}
\ No newline at end of file
+}